@@ -0,0 +1,121 @@
+package com.hotjoe.audit;
+
+import static com.hotjoe.json.JsonStrings.appendString;
+
+/**
+ * A single line of the audit log.  Either a token was issued, in which case the claims are those of the new token,
+ * or a validation was rejected, in which case the claims are whatever could be decoded from the rejected token (if
+ * anything) and the reason is the verification failure.
+ */
+public class AuditEvent {
+    public static final String ISSUED = "issued";
+    public static final String REJECTED = "rejected";
+
+    private String type;
+    private long timestamp;
+    private String jti;
+    private String sub;
+    private String iss;
+    private Long exp;
+    private String reason;
+
+    public AuditEvent() {
+    }
+
+    public AuditEvent(String type, long timestamp, String jti, String sub, String iss, Long exp, String reason) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.jti = jti;
+        this.sub = sub;
+        this.iss = iss;
+        this.exp = exp;
+        this.reason = reason;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public void setJti(String jti) {
+        this.jti = jti;
+    }
+
+    public String getSub() {
+        return sub;
+    }
+
+    public void setSub(String sub) {
+        this.sub = sub;
+    }
+
+    public String getIss() {
+        return iss;
+    }
+
+    public void setIss(String iss) {
+        this.iss = iss;
+    }
+
+    public Long getExp() {
+        return exp;
+    }
+
+    public void setExp(Long exp) {
+        this.exp = exp;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    /**
+     * Appends this event as a single line of JSON, including the trailing newline.  This is hand rolled rather than
+     * going through JSON-B as it runs for every event on the writer thread.
+     *
+     * @param stringBuilder where to write the line
+     */
+    void appendJson(StringBuilder stringBuilder) {
+        stringBuilder.append("{\"type\":");
+        appendString(stringBuilder, type);
+        stringBuilder.append(",\"timestamp\":").append(timestamp);
+        if( jti != null ) {
+            stringBuilder.append(",\"jti\":");
+            appendString(stringBuilder, jti);
+        }
+        if( sub != null ) {
+            stringBuilder.append(",\"sub\":");
+            appendString(stringBuilder, sub);
+        }
+        if( iss != null ) {
+            stringBuilder.append(",\"iss\":");
+            appendString(stringBuilder, iss);
+        }
+        if( exp != null )
+            stringBuilder.append(",\"exp\":").append(exp.longValue());
+        if( reason != null ) {
+            stringBuilder.append(",\"reason\":");
+            appendString(stringBuilder, reason);
+        }
+        stringBuilder.append("}\n");
+    }
+}
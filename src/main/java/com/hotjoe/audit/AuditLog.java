@@ -0,0 +1,442 @@
+package com.hotjoe.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An asynchronous audit log of issued tokens and rejected validations.  Callers only put an {@link AuditEvent} on a
+ * bounded queue; a single background thread takes events off in batches and appends them as NDJSON - one JSON
+ * object per line - to a FileChannel.
+ * <br/>
+ * The log lives in <code>security.audit.directory</code> as a series of segments named
+ * <code>audit-&lt;epoch millis&gt;.ndjson</code>.  A new segment is started once the current one passes
+ * <code>security.audit.maxFileBytes</code>.  Use {@link AuditLogReader} to read them back.
+ * <br/>
+ * When the queue is full <code>security.audit.backpressure</code> decides what happens.  <code>DROP</code>, the
+ * default, throws the event away and counts it in the <code>audit.events.dropped</code> metric so the request is
+ * never slowed down.  <code>BLOCK</code> makes the caller wait for the writer to catch up.  If the writer is failing,
+ * or doesn't catch up within <code>security.audit.blockTimeoutMillis</code>, the caller gets an
+ * {@link AuditLogException} instead, so under BLOCK a token is never issued without its event being queued.
+ * <br/>
+ * The policy only applies to issued tokens.  A rejected validation never waits and never fails - anyone can send
+ * garbage tokens, so a flood of them must not be able to hold up request threads or turn a 400 into a 500.  Rejected
+ * events may only take up half of the queue, leaving the rest for issued tokens, and any that don't fit are counted
+ * in <code>audit.rejected.dropped</code>.
+ * <br/>
+ * A failed write doesn't stop the writer.  It closes the segment, counts the failure in
+ * <code>audit.write.failures</code>, sets the <code>audit.writer.healthy</code> gauge to 0 and retries the same
+ * batch in a new segment, backing off up to 30 seconds between tries.
+ * <br/>
+ * Segments are kept forever by default.  Set <code>security.audit.maxSegments</code> to delete the oldest ones
+ * once there are more than that.
+ */
+@ApplicationScoped
+public class AuditLog {
+    public enum BackpressurePolicy {
+        DROP,
+        BLOCK
+    }
+
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".ndjson";
+
+    private static final long MAX_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "security.audit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "security.audit.directory", defaultValue = "audit")
+    String directory;
+
+    @ConfigProperty(name = "security.audit.queueCapacity", defaultValue = "65536")
+    int queueCapacity;
+
+    @ConfigProperty(name = "security.audit.batchSize", defaultValue = "512")
+    int batchSize;
+
+    @ConfigProperty(name = "security.audit.flushIntervalMillis", defaultValue = "200")
+    long flushIntervalMillis;
+
+    @ConfigProperty(name = "security.audit.maxFileBytes", defaultValue = "67108864")
+    long maxFileBytes;
+
+    @ConfigProperty(name = "security.audit.backpressure", defaultValue = "DROP")
+    BackpressurePolicy backpressurePolicy;
+
+    @ConfigProperty(name = "security.audit.blockTimeoutMillis", defaultValue = "5000")
+    long blockTimeoutMillis;
+
+    @ConfigProperty(name = "security.audit.maxSegments", defaultValue = "0")
+    int maxSegments;
+
+    //
+    // ConcurrentLinkedQueue is lock free but unbounded so the bound is kept with a separate counter
+    //
+    private final ConcurrentLinkedQueue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private Counter droppedCounter;
+    private Counter rejectedDroppedCounter;
+    private Counter writeFailureCounter;
+
+    private volatile boolean running;
+    private volatile boolean healthy = true;
+    private Thread writerThread;
+
+    private Path auditDirectory;
+    private FileChannel fileChannel;
+    private long fileBytes;
+    private long batchStartBytes;
+    private long lastSegmentId;
+
+    @PostConstruct
+    protected void postConstruct() {
+        droppedCounter = Counter.builder("audit.events.dropped")
+                .description("The number of audit events thrown away because the audit queue was full")
+                .register(meterRegistry);
+        rejectedDroppedCounter = Counter.builder("audit.rejected.dropped")
+                .description("The number of rejected validation events thrown away because their share of the audit queue was full")
+                .register(meterRegistry);
+        Gauge.builder("audit.queue.size", queueSize, AtomicInteger::get)
+                .description("The number of audit events waiting to be written")
+                .register(meterRegistry);
+        writeFailureCounter = Counter.builder("audit.write.failures")
+                .description("The number of times writing a batch of audit events failed")
+                .register(meterRegistry);
+        Gauge.builder("audit.writer.healthy", this, auditLog -> auditLog.isHealthy() ? 1 : 0)
+                .description("1 while audit events are being written, 0 while the writer is failing")
+                .register(meterRegistry);
+
+        if( !enabled )
+            return;
+
+        auditDirectory = Paths.get(directory);
+
+        try {
+            Files.createDirectories(auditDirectory);
+        } catch (IOException ioe) {
+            logger.error("unable to create audit directory " + auditDirectory + ".  Cannot continue!");
+
+            throw new RuntimeException("unable to create audit directory " + auditDirectory, ioe);
+        }
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    protected void preDestroy() {
+        if( writerThread == null )
+            return;
+
+        running = false;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true if events are being recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return false if the last attempt to write to the log failed and the writer is retrying
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Records that a token was issued.
+     *
+     * @param jti the "jti" of the new token
+     * @param sub the "sub" of the new token
+     * @param iss the "iss" of the new token
+     * @param exp the "exp" of the new token
+     *
+     * @throws AuditLogException under BLOCK if the event cannot be queued
+     */
+    public void issued(String jti, String sub, String iss, Date exp) {
+        if( !enabled )
+            return;
+
+        enqueue(new AuditEvent(AuditEvent.ISSUED, System.currentTimeMillis(), jti, sub, iss,
+                exp == null ? null : exp.getTime() / 1000, null));
+    }
+
+    /**
+     * Records that a token failed validation.  Any of the claims may be null if the token could not be decoded.
+     *
+     * @param jti the "jti" of the rejected token
+     * @param sub the "sub" of the rejected token
+     * @param iss the "iss" of the rejected token
+     * @param exp the "exp" of the rejected token
+     * @param reason why the token was rejected
+     */
+    public void rejected(String jti, String sub, String iss, Date exp, String reason) {
+        if( !enabled )
+            return;
+
+        AuditEvent auditEvent = new AuditEvent(AuditEvent.REJECTED, System.currentTimeMillis(), jti, sub, iss,
+                exp == null ? null : exp.getTime() / 1000, reason);
+
+        if( !tryEnqueue(auditEvent, queueCapacity / 2) )
+            rejectedDroppedCounter.increment();
+    }
+
+    /**
+     * Waits until every event queued so far has been written.  Mostly useful for tests and shutdown.
+     *
+     * @param timeoutMillis how long to wait
+     *
+     * @return true if the queue drained in time
+     */
+    public boolean flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while( queueSize.get() > 0 ) {
+            if( System.nanoTime() > deadline )
+                return false;
+
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the directory the log segments are written to
+     */
+    public Path getDirectory() {
+        return auditDirectory;
+    }
+
+    private void enqueue(AuditEvent auditEvent) throws AuditLogException {
+        long deadline = 0;
+
+        while( !tryEnqueue(auditEvent, queueCapacity) ) {
+            if( backpressurePolicy == BackpressurePolicy.DROP ) {
+                droppedCounter.increment();
+
+                return;
+            }
+
+            //
+            // under BLOCK never lose an event quietly - fail the caller instead
+            //
+            if( !running || !healthy )
+                throw new AuditLogException("the audit log is not writing so the event cannot be recorded");
+
+            if( deadline == 0 )
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+            else if( System.nanoTime() > deadline )
+                throw new AuditLogException("timed out waiting for room in the audit log queue");
+
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * Queues an event if there are fewer than limit events waiting.
+     *
+     * @param auditEvent the event to queue
+     * @param limit the queue size at which the event is refused
+     *
+     * @return true if the event was queued
+     */
+    private boolean tryEnqueue(AuditEvent auditEvent, int limit) {
+        while( true ) {
+            int size = queueSize.get();
+
+            if( size >= limit )
+                return false;
+
+            if( queueSize.compareAndSet(size, size + 1) ) {
+                queue.offer(auditEvent);
+
+                return true;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        StringBuilder stringBuilder = new StringBuilder(batchSize * 160);
+        int count = 0;
+        long retryMillis = flushIntervalMillis;
+
+        //
+        // once shut down keep draining only while writes are working, otherwise there is no end to it
+        //
+        while( running || ((queueSize.get() > 0) && healthy) ) {
+            //
+            // a batch that failed is kept and tried again rather than taking more events
+            //
+            if( count == 0 ) {
+                AuditEvent auditEvent;
+                while( (count < batchSize) && ((auditEvent = queue.poll()) != null) ) {
+                    auditEvent.appendJson(stringBuilder);
+                    count++;
+                }
+
+                if( count == 0 ) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+                    continue;
+                }
+            }
+
+            try {
+                write(stringBuilder);
+            } catch (IOException ioe) {
+                writeFailureCounter.increment();
+                if( healthy )
+                    logger.error("unable to write audit log, will retry - " + ioe.getMessage());
+                healthy = false;
+
+                abandonSegment();
+
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryMillis));
+                retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+
+                continue;
+            }
+
+            if( !healthy ) {
+                logger.info("audit log is writing again");
+                healthy = true;
+            }
+            retryMillis = flushIntervalMillis;
+
+            stringBuilder.setLength(0);
+
+            //
+            // only release the slots once the batch is on disk so flush() means written
+            //
+            queueSize.addAndGet(-count);
+            count = 0;
+        }
+
+        if( queueSize.get() > 0 )
+            logger.error(queueSize.get() + " audit events could not be written before shutdown");
+
+        closeSegment();
+    }
+
+    private void write(StringBuilder stringBuilder) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(stringBuilder.toString().getBytes(StandardCharsets.UTF_8));
+
+        if( (fileChannel != null) && (fileBytes > 0) && (fileBytes + byteBuffer.remaining() > maxFileBytes) )
+            closeSegment();
+
+        if( fileChannel == null )
+            openSegment();
+
+        batchStartBytes = fileBytes;
+        while( byteBuffer.hasRemaining() )
+            fileBytes += fileChannel.write(byteBuffer);
+    }
+
+    private void openSegment() throws IOException {
+        //
+        // segments sort by name so never reuse one, even when rolling twice in the same millisecond
+        //
+        lastSegmentId = Math.max(System.currentTimeMillis(), lastSegmentId + 1);
+        Path segment = auditDirectory.resolve(FILE_PREFIX + lastSegmentId + FILE_SUFFIX);
+
+        fileChannel = FileChannel.open(segment,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileBytes = fileChannel.size();
+
+        if( maxSegments > 0 )
+            deleteOldSegments();
+    }
+
+    private void deleteOldSegments() {
+        try {
+            List<Path> segments = AuditLogReader.segments(auditDirectory);
+
+            for (int i = 0; i < segments.size() - maxSegments; i++)
+                Files.deleteIfExists(segments.get(i));
+        } catch (IOException ioe) {
+            logger.error("unable to delete old audit log segments - " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Closes the segment after a failed write, first cutting off whatever part of the batch made it in so the
+     * retry doesn't leave a partial line behind.
+     */
+    private void abandonSegment() {
+        if( fileChannel == null )
+            return;
+
+        try {
+            fileChannel.truncate(batchStartBytes);
+        } catch (IOException ioe) {
+            logger.error("unable to remove partial audit batch - " + ioe.getMessage());
+        }
+
+        try {
+            fileChannel.close();
+        } catch (IOException ioe) {
+            // already failing, nothing more to do
+        }
+
+        fileChannel = null;
+        fileBytes = 0;
+    }
+
+    private void closeSegment() {
+        if( fileChannel == null )
+            return;
+
+        try {
+            fileChannel.force(false);
+            fileChannel.close();
+        } catch (IOException ioe) {
+            logger.error("unable to close audit log segment - " + ioe.getMessage());
+        }
+
+        fileChannel = null;
+    }
+}
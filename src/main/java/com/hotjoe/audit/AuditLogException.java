@@ -0,0 +1,11 @@
+package com.hotjoe.audit;
+
+/**
+ * Thrown by {@link AuditLog} under the BLOCK backpressure policy when an event cannot be queued, either because the
+ * writer is failing or because it did not make room in time.
+ */
+public class AuditLogException extends RuntimeException {
+    public AuditLogException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package com.hotjoe.audit;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads back the segments written by {@link AuditLog}.  This can be used from code or run from the command line
+ * against an audit directory or a single segment:
+ * <br/>
+ * <code>
+ *     java -cp target/quarkus-app/app/*:target/quarkus-app/lib/main/* com.hotjoe.audit.AuditLogReader audit [issued|rejected]
+ * </code>
+ * <br/>
+ * which prints one tab separated line per event, oldest segment first.
+ */
+public class AuditLogReader {
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    /**
+     * Reads every event from a segment, or from every segment in a directory in the order they were written.
+     *
+     * @param path an audit directory or a single .ndjson segment
+     * @param consumer called once per event
+     *
+     * @throws IOException if a file cannot be read
+     */
+    public void read(Path path, Consumer<AuditEvent> consumer) throws IOException {
+        for (Path segment : segments(path)) {
+            try (BufferedReader bufferedReader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while( (line = bufferedReader.readLine()) != null ) {
+                    if( !line.isBlank() )
+                        consumer.accept(jsonb.fromJson(line, AuditEvent.class));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path an audit directory or a single .ndjson segment
+     *
+     * @return the segments to read, oldest first
+     *
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> segments(Path path) throws IOException {
+        if( !Files.isDirectory(path) )
+            return List.of(path);
+
+        try (Stream<Path> files = Files.list(path)) {
+            //
+            // segment names are audit-<epoch millis>.ndjson so compare the number, not the string
+            //
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(AuditLog.FILE_PREFIX) && name.endsWith(AuditLog.FILE_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(segmentId(a), segmentId(b)))
+                    .toList();
+        }
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+
+        try {
+            return Long.parseLong(name.substring(AuditLog.FILE_PREFIX.length(), name.length() - AuditLog.FILE_SUFFIX.length()));
+        } catch (NumberFormatException nfe) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if( args.length < 1 ) {
+            System.err.println("usage: AuditLogReader <audit directory or segment> [issued|rejected]");
+            System.exit(1);
+        }
+
+        String type = args.length > 1 ? args[1] : null;
+
+        new AuditLogReader().read(Paths.get(args[0]), auditEvent -> {
+            if( (type != null) && !type.equals(auditEvent.getType()) )
+                return;
+
+            System.out.println(Instant.ofEpochMilli(auditEvent.getTimestamp()) + "\t" +
+                    auditEvent.getType() + "\t" +
+                    auditEvent.getJti() + "\t" +
+                    auditEvent.getSub() + "\t" +
+                    auditEvent.getIss() + "\t" +
+                    (auditEvent.getExp() == null ? null : Instant.ofEpochSecond(auditEvent.getExp())) + "\t" +
+                    (auditEvent.getReason() == null ? "" : auditEvent.getReason()));
+        });
+    }
+}
@@ -0,0 +1,424 @@
+package com.hotjoe.cli;
+
+import com.hotjoe.jwt.ClaimProfile;
+import com.hotjoe.jwt.ClaimProfiles;
+import com.hotjoe.jwt.JWTTokenUtil;
+import com.hotjoe.jwt.Tenant;
+import com.hotjoe.jwt.TenantKeyRegistry;
+import org.jboss.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Mints tokens in bulk for load test fixtures and device pre-provisioning, without going through HTTP.  Subjects
+ * are read one per line from a file or stdin and one token per line is written to a file or stdout.
+ * <br/>
+ * Subjects are read in batches and each batch is signed on a pool of worker threads, one per core by default.  At
+ * most two batches per worker are in flight at once, whether being signed or waiting to be written, so memory use
+ * does not depend on the size of the input.  Tokens are copied into a single buffer and written to a channel when
+ * it fills.  By default tokens are written in the same order as their subjects; with <code>--unordered</code> each
+ * batch is written as soon as it is signed, which keeps all of the workers busy when one batch is slow.
+ * <br/>
+ * Tokens are signed with the default key unless a <code>--tenant</code> or <code>--profile</code> is given.  The
+ * throughput is printed to stderr when done.
+ */
+@ApplicationScoped
+public class BulkMintCommand {
+    static final String USAGE = "usage: mint [--input <file>|-] [--output <file>|-] [--tenant <id> | --profile <name>]" +
+            " [--threads <count>] [--batch-size <count>] [--unordered]";
+
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final int OUTPUT_BUFFER_BYTES = 1024 * 1024;
+    private static final byte[] FAILED_BATCH = new byte[0];
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    TenantKeyRegistry tenantKeyRegistry;
+
+    @Inject
+    ClaimProfiles claimProfiles;
+
+    /**
+     * Runs the command.
+     *
+     * @param args the command line arguments, without the leading "mint"
+     *
+     * @return 0 if every subject was minted, 1 if minting failed and 2 if the arguments are wrong
+     */
+    public int run(String... args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException illegalArgumentException) {
+            System.err.println(illegalArgumentException.getMessage());
+            System.err.println(USAGE);
+
+            return 2;
+        }
+
+        Function<String, String> minter = minter(options);
+        if( minter == null )
+            return 2;
+
+        long start = System.nanoTime();
+        long minted;
+
+        try (BufferedReader bufferedReader = openInput(options.input)) {
+            WritableByteChannel channel = openOutput(options.output);
+
+            try {
+                minted = mint(bufferedReader, channel, minter, options.threads, options.batchSize, options.ordered);
+            } finally {
+                //
+                // leave stdout open, the logging still needs it
+                //
+                if( !isStandardStream(options.output) )
+                    channel.close();
+            }
+        } catch (IOException | RuntimeException exception) {
+            logger.error("bulk mint failed - " + exception.getMessage());
+
+            return 1;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.err.printf("minted %d tokens in %.3f seconds - %.0f tokens/second using %d threads%n",
+                minted, seconds, seconds > 0 ? minted / seconds : 0, options.threads);
+
+        return 0;
+    }
+
+    /**
+     * Reads subjects, signs them on a pool of threads and writes the tokens.  Blank lines are skipped.
+     *
+     * @param bufferedReader where to read subjects from, one per line
+     * @param channel where to write tokens to, one per line
+     * @param minter creates a token for a subject
+     * @param threads the number of signing threads
+     * @param batchSize the number of subjects handed to a thread at once
+     * @param ordered true to write tokens in the order of their subjects
+     *
+     * @return the number of tokens written
+     *
+     * @throws IOException if the subjects cannot be read or the tokens cannot be written
+     */
+    long mint(BufferedReader bufferedReader,
+              WritableByteChannel channel,
+              Function<String, String> minter,
+              int threads,
+              int batchSize,
+              boolean ordered) throws IOException {
+        int maxInFlight = threads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        BatchWriter batchWriter = new BatchWriter(channel, ordered, inFlight);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "mint-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        long sequence = 0;
+        long subjectCount = 0;
+
+        try {
+            List<String> batch = new ArrayList<>(batchSize);
+            String line;
+
+            do {
+                line = bufferedReader.readLine();
+                if( line != null ) {
+                    String subject = line.trim();
+                    if( subject.isEmpty() )
+                        continue;
+
+                    batch.add(subject);
+                }
+
+                if( (batch.size() == batchSize) || ((line == null) && !batch.isEmpty()) ) {
+                    //
+                    // a permit is only given back once the batch is written so this is what bounds memory
+                    //
+                    inFlight.acquireUninterruptibly();
+                    batchWriter.checkFailure();
+
+                    long batchSequence = sequence++;
+                    List<String> subjects = batch;
+                    executorService.execute(() -> batchWriter.write(batchSequence, sign(subjects, minter, batchWriter)));
+
+                    subjectCount += subjects.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            } while( line != null );
+
+            //
+            // once every permit is back every batch has been written
+            //
+            inFlight.acquireUninterruptibly(maxInFlight);
+            batchWriter.checkFailure();
+            batchWriter.flush();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        return subjectCount;
+    }
+
+    private static byte[] sign(List<String> subjects, Function<String, String> minter, BatchWriter batchWriter) {
+        try {
+            StringBuilder stringBuilder = new StringBuilder(subjects.size() * 512);
+
+            for (String subject : subjects)
+                stringBuilder.append(minter.apply(subject)).append('\n');
+
+            return stringBuilder.toString().getBytes(StandardCharsets.US_ASCII);
+        } catch (RuntimeException runtimeException) {
+            batchWriter.fail(runtimeException);
+
+            return FAILED_BATCH;
+        }
+    }
+
+    private Function<String, String> minter(Options options) {
+        if( (options.tenantId != null) && (options.profile != null) ) {
+            System.err.println("a profile is signed with the default key so it can't be combined with a tenant");
+
+            return null;
+        }
+
+        if( options.profile != null ) {
+            ClaimProfile claimProfile = claimProfiles.getProfile(options.profile);
+            if( claimProfile == null ) {
+                System.err.println("unknown profile " + options.profile);
+
+                return null;
+            }
+
+            return subject -> jwtTokenUtil.generateJWTToken(claimProfile, subject, null);
+        }
+
+        if( options.tenantId != null ) {
+            Tenant tenant = tenantKeyRegistry.getTenant(options.tenantId);
+            if( (tenant == null) || !tenant.canSign() ) {
+                System.err.println("unknown tenant " + options.tenantId + " or the tenant has no private key");
+
+                return null;
+            }
+
+            return subject -> jwtTokenUtil.generateJWTToken(tenant, subject, null, null, null);
+        }
+
+        return jwtTokenUtil::generateJWTToken;
+    }
+
+    private static boolean isStandardStream(String name) {
+        return "-".equals(name);
+    }
+
+    private static BufferedReader openInput(String input) throws IOException {
+        if( isStandardStream(input) )
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+        return Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+    }
+
+    private static WritableByteChannel openOutput(String output) throws IOException {
+        //
+        // write to the file descriptor directly rather than through the synchronized System.out PrintStream
+        //
+        if( isStandardStream(output) )
+            return Channels.newChannel(new FileOutputStream(FileDescriptor.out));
+
+        return FileChannel.open(Paths.get(output),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Collects signed batches and writes them through one buffer.  In ordered mode a batch that finishes early is
+     * held until the batches before it are written.  Because the reader can't start another batch until one is
+     * written, at most maxInFlight - 1 batches are ever held.
+     */
+    private static final class BatchWriter {
+        private final WritableByteChannel channel;
+        private final boolean ordered;
+        private final Semaphore inFlight;
+
+        private final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+        private final Map<Long, byte[]> waiting = new HashMap<>();
+        private long nextSequence;
+
+        private volatile Exception failure;
+
+        BatchWriter(WritableByteChannel channel, boolean ordered, Semaphore inFlight) {
+            this.channel = channel;
+            this.ordered = ordered;
+            this.inFlight = inFlight;
+        }
+
+        synchronized void write(long sequence, byte[] tokens) {
+            if( !ordered ) {
+                writeBatch(tokens);
+
+                return;
+            }
+
+            if( sequence != nextSequence ) {
+                waiting.put(sequence, tokens);
+
+                return;
+            }
+
+            writeBatch(tokens);
+            nextSequence++;
+
+            byte[] next;
+            while( (next = waiting.remove(nextSequence)) != null ) {
+                writeBatch(next);
+                nextSequence++;
+            }
+        }
+
+        synchronized void flush() throws IOException {
+            drain();
+        }
+
+        void fail(Exception exception) {
+            if( failure == null )
+                failure = exception;
+        }
+
+        void checkFailure() throws IOException {
+            Exception exception = failure;
+
+            if( exception instanceof IOException ioException )
+                throw ioException;
+            if( exception != null )
+                throw (RuntimeException) exception;
+        }
+
+        private void writeBatch(byte[] tokens) {
+            try {
+                //
+                // after a failure keep giving permits back so the reader is never stuck, but stop writing
+                //
+                if( failure != null )
+                    return;
+
+                int offset = 0;
+                while( offset < tokens.length ) {
+                    if( !byteBuffer.hasRemaining() )
+                        drain();
+
+                    int length = Math.min(byteBuffer.remaining(), tokens.length - offset);
+                    byteBuffer.put(tokens, offset, length);
+                    offset += length;
+                }
+            } catch (IOException ioException) {
+                fail(ioException);
+            } finally {
+                inFlight.release();
+            }
+        }
+
+        private void drain() throws IOException {
+            byteBuffer.flip();
+            while( byteBuffer.hasRemaining() )
+                channel.write(byteBuffer);
+            byteBuffer.clear();
+        }
+    }
+
+    /**
+     * The parsed command line.
+     */
+    static final class Options {
+        String input = "-";
+        String output = "-";
+        String tenantId;
+        String profile;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        boolean ordered = true;
+
+        /**
+         * @param args the command line arguments
+         *
+         * @return the Options
+         *
+         * @throws IllegalArgumentException if an argument is unknown, missing its value or out of range
+         */
+        static Options parse(String... args) throws IllegalArgumentException {
+            Options options = new Options();
+
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--input", "-i" -> options.input = value(args, ++i);
+                    case "--output", "-o" -> options.output = value(args, ++i);
+                    case "--tenant" -> options.tenantId = value(args, ++i);
+                    case "--profile" -> options.profile = value(args, ++i);
+                    case "--threads", "-t" -> options.threads = positive(args, ++i);
+                    case "--batch-size" -> options.batchSize = positive(args, ++i);
+                    case "--unordered" -> options.ordered = false;
+                    default -> throw new IllegalArgumentException("unknown argument " + args[i]);
+                }
+            }
+
+            return options;
+        }
+
+        private static String value(String[] args, int index) {
+            if( index >= args.length )
+                throw new IllegalArgumentException(args[index - 1] + " needs a value");
+
+            return args[index];
+        }
+
+        private static int positive(String[] args, int index) {
+            String value = value(args, index);
+
+            try {
+                int number = Integer.parseInt(value);
+                if( number > 0 )
+                    return number;
+            } catch (NumberFormatException nfe) {
+                // fall through to the same message
+            }
+
+            throw new IllegalArgumentException(args[index - 1] + " must be a positive number, not " + value);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hotjoe.cli;
+
+import io.quarkus.runtime.Quarkus;
+import io.quarkus.runtime.QuarkusApplication;
+import io.quarkus.runtime.annotations.QuarkusMain;
+
+import jakarta.inject.Inject;
+import java.util.Arrays;
+
+/**
+ * The entry point of the application.  With no arguments it runs the HTTP service as before.  With
+ * <code>mint</code> as the first argument it runs {@link BulkMintCommand} with the rest of the arguments and exits
+ * when it is done:
+ * <br/>
+ * <code>
+ *     java -jar target/quarkus-app/quarkus-run.jar mint --input subjects.txt --output tokens.txt
+ * </code>
+ */
+@QuarkusMain
+public class JWTGeneratorMain implements QuarkusApplication {
+    public static final String MINT_COMMAND = "mint";
+
+    @Inject
+    BulkMintCommand bulkMintCommand;
+
+    @Override
+    public int run(String... args) throws Exception {
+        if( (args.length > 0) && MINT_COMMAND.equals(args[0]) )
+            return bulkMintCommand.run(Arrays.copyOfRange(args, 1, args.length));
+
+        Quarkus.waitForExit();
+
+        return 0;
+    }
+}
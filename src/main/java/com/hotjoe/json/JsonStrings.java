@@ -0,0 +1,36 @@
+package com.hotjoe.json;
+
+/**
+ * Minimal helpers for writing JSON by hand on paths where going through JSON-B for every call costs too much.
+ */
+public final class JsonStrings {
+    private JsonStrings() {
+    }
+
+    /**
+     * Appends a String as a quoted and escaped JSON string.
+     *
+     * @param stringBuilder where to write the value
+     * @param value the value to write.  Must not be null.
+     */
+    public static void appendString(StringBuilder stringBuilder, String value) {
+        stringBuilder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> stringBuilder.append("\\\"");
+                case '\\' -> stringBuilder.append("\\\\");
+                case '\n' -> stringBuilder.append("\\n");
+                case '\r' -> stringBuilder.append("\\r");
+                case '\t' -> stringBuilder.append("\\t");
+                default -> {
+                    if( c < 0x20 )
+                        stringBuilder.append(String.format("\\u%04x", (int) c));
+                    else
+                        stringBuilder.append(c);
+                }
+            }
+        }
+        stringBuilder.append('"');
+    }
+}
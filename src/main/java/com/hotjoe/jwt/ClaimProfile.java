@@ -0,0 +1,59 @@
+package com.hotjoe.jwt;
+
+import java.util.Set;
+
+/**
+ * A claim profile that has been validated and precompiled by {@link ClaimProfiles}.  The fixed claims of the
+ * profile are already serialized so issuing a token only has to add the per-token and per-request claims.
+ */
+public final class ClaimProfile {
+    private final String name;
+    private final String issuer;
+    private final int secondsToExpiration;
+    private final String fixedClaimsJson;
+    private final Set<String> reservedClaims;
+
+    ClaimProfile(String name, String issuer, int secondsToExpiration, String fixedClaimsJson, Set<String> reservedClaims) {
+        this.name = name;
+        this.issuer = issuer;
+        this.secondsToExpiration = secondsToExpiration;
+        this.fixedClaimsJson = fixedClaimsJson;
+        this.reservedClaims = reservedClaims;
+    }
+
+    /**
+     * @return the name of the profile as used in configuration and requests
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the "iss" of tokens from this profile
+     */
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * @return the TTL, in seconds, of tokens from this profile
+     */
+    public int getSecondsToExpiration() {
+        return secondsToExpiration;
+    }
+
+    /**
+     * @return the fixed claims as JSON object members without the surrounding braces, for example
+     *         <code>"aud":"mobile","scope":"read write"</code>, or an empty String if there are none
+     */
+    String getFixedClaimsJson() {
+        return fixedClaimsJson;
+    }
+
+    /**
+     * @return the claims a request may not set - the registered claims and any fixed by this profile
+     */
+    Set<String> getReservedClaims() {
+        return reservedClaims;
+    }
+}
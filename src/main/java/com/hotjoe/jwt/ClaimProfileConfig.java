@@ -0,0 +1,59 @@
+package com.hotjoe.jwt;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithParentName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * The named claim profiles from configuration.  Each profile lives under its own name:
+ * <br/>
+ * <code>
+ *     security.jwt.profiles.mobile-app.audience = mobile<br/>
+ *     security.jwt.profiles.mobile-app.scopes = read,write<br/>
+ *     security.jwt.profiles.mobile-app.secondsToExpiration = 900<br/>
+ *     security.jwt.profiles.mobile-app.claims.tenant = acme<br/>
+ * </code>
+ * <br/>
+ * See {@link ClaimProfiles} for how these are turned into token templates.
+ */
+@ConfigMapping(prefix = "security.jwt.profiles", namingStrategy = ConfigMapping.NamingStrategy.VERBATIM)
+public interface ClaimProfileConfig {
+    @WithParentName
+    Map<String, Profile> profiles();
+
+    interface Profile {
+        /**
+         * @return the "iss" for tokens from this profile.  Defaults to security.jwt.default.issuer.
+         */
+        Optional<String> issuer();
+
+        /**
+         * @return the "aud" for tokens from this profile
+         */
+        Optional<List<String>> audience();
+
+        /**
+         * @return the scopes, written as the space separated "scope" claim
+         */
+        Optional<List<String>> scopes();
+
+        /**
+         * @return the roles, written as the "roles" array claim
+         */
+        Optional<List<String>> roles();
+
+        /**
+         * @return the TTL of tokens from this profile.  Defaults to security.jwt.default.secondsToExpiration.
+         */
+        OptionalInt secondsToExpiration();
+
+        /**
+         * @return any other fixed String claims, for example the tenant
+         */
+        Map<String, String> claims();
+    }
+}
@@ -0,0 +1,200 @@
+package com.hotjoe.jwt;
+
+import com.hotjoe.json.JsonStrings;
+import io.quarkus.runtime.Startup;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the claim profiles from {@link ClaimProfileConfig}.  Profiles are validated and compiled once at startup
+ * so a bad profile stops the application rather than failing requests, and so issuing a token from a profile only
+ * has to merge the per-request claims into an already serialized template.
+ * <br/>
+ * A request may add its own claims on top of a profile.  Those are limited to
+ * <code>security.jwt.customClaims.maxBytes</code> of JSON and may not replace a registered claim or one fixed by
+ * the profile.
+ */
+@Startup
+@ApplicationScoped
+public class ClaimProfiles {
+    /**
+     * The registered claims from RFC 7519 section 4.1 that are always set by {@link JWTTokenUtil}.
+     */
+    static final Set<String> REGISTERED_CLAIMS = Set.of("iss", "sub", "aud", "exp", "nbf", "iat", "jti");
+
+    /**
+     * The claims that grant access.  Only a profile may set them, so a request can never add them even to a profile
+     * that leaves them out.
+     */
+    static final Set<String> AUTHORIZATION_CLAIMS = Set.of("scope", "roles");
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    Jsonb jsonb;
+
+    @Inject
+    ClaimProfileConfig claimProfileConfig;
+
+    @ConfigProperty(name = "security.jwt.default.secondsToExpiration", defaultValue = "3600")
+    int defaultSecondsToExpiration;
+
+    @ConfigProperty(name = "security.jwt.default.issuer", defaultValue = "https://www.hotjoe.com/")
+    String defaultIssuer;
+
+    @ConfigProperty(name = "security.jwt.customClaims.maxBytes", defaultValue = "1024")
+    int maxCustomClaimBytes;
+
+    private Map<String, ClaimProfile> profiles;
+
+    @PostConstruct
+    protected void postConstruct() {
+        Map<String, ClaimProfile> compiledProfiles = new HashMap<>();
+
+        for (Map.Entry<String, ClaimProfileConfig.Profile> entry : claimProfileConfig.profiles().entrySet()) {
+            try {
+                compiledProfiles.put(entry.getKey(), compile(entry.getKey(), entry.getValue()));
+            } catch (IllegalArgumentException illegalArgumentException) {
+                logger.error("claim profile " + entry.getKey() + " is invalid - " +
+                        illegalArgumentException.getMessage() + ".  Cannot continue!");
+
+                throw new RuntimeException("claim profile " + entry.getKey() + " is invalid", illegalArgumentException);
+            }
+        }
+
+        profiles = Map.copyOf(compiledProfiles);
+    }
+
+    /**
+     * @param name the name of the profile
+     *
+     * @return the ClaimProfile or null if there is no profile with that name
+     */
+    public ClaimProfile getProfile(String name) {
+        return name == null ? null : profiles.get(name);
+    }
+
+    /**
+     * @return the issuer of every profile
+     */
+    Set<String> getIssuers() {
+        Set<String> issuers = new HashSet<>();
+        for (ClaimProfile claimProfile : profiles.values())
+            issuers.add(claimProfile.getIssuer());
+
+        return issuers;
+    }
+
+    /**
+     * Serializes the per-request claims of a token as JSON object members, without the surrounding braces.
+     *
+     * @param claimProfile the profile the token is being issued from
+     * @param claims the per-request claims.  May be null or empty.
+     *
+     * @return the JSON or an empty String if there are no claims
+     *
+     * @throws IllegalArgumentException if a claim is reserved or the claims are over the size limit
+     */
+    String requestClaimsJson(ClaimProfile claimProfile, Map<String, Object> claims) throws IllegalArgumentException {
+        if( (claims == null) || claims.isEmpty() )
+            return "";
+
+        for (String claim : claims.keySet()) {
+            if( claimProfile.getReservedClaims().contains(claim) )
+                throw new IllegalArgumentException("claim " + claim + " cannot be set by a request");
+        }
+
+        String json = jsonb.toJson(claims);
+
+        if( json.getBytes(StandardCharsets.UTF_8).length > maxCustomClaimBytes )
+            throw new IllegalArgumentException("claims are larger than " + maxCustomClaimBytes + " bytes");
+
+        //
+        // strip the braces so the members can be dropped straight into the template
+        //
+        return json.substring(1, json.length() - 1).trim();
+    }
+
+    private ClaimProfile compile(String name, ClaimProfileConfig.Profile profile) {
+        int secondsToExpiration = profile.secondsToExpiration().orElse(defaultSecondsToExpiration);
+        if( secondsToExpiration <= 0 )
+            throw new IllegalArgumentException("secondsToExpiration must be positive");
+
+        Set<String> reservedClaims = new HashSet<>(REGISTERED_CLAIMS);
+        reservedClaims.addAll(AUTHORIZATION_CLAIMS);
+        StringBuilder stringBuilder = new StringBuilder();
+
+        List<String> audience = profile.audience().orElse(List.of());
+        if( audience.size() == 1 ) {
+            stringBuilder.append("\"aud\":");
+            JsonStrings.appendString(stringBuilder, audience.get(0));
+        }
+        else if( audience.size() > 1 ) {
+            stringBuilder.append("\"aud\":");
+            appendArray(stringBuilder, audience);
+        }
+
+        List<String> scopes = profile.scopes().orElse(List.of());
+        if( !scopes.isEmpty() ) {
+            for (String scope : scopes) {
+                if( scope.isBlank() || scope.chars().anyMatch(Character::isWhitespace) )
+                    throw new IllegalArgumentException("scope \"" + scope + "\" may not contain whitespace");
+            }
+
+            appendSeparator(stringBuilder);
+            stringBuilder.append("\"scope\":");
+            JsonStrings.appendString(stringBuilder, String.join(" ", scopes));
+        }
+
+        List<String> roles = profile.roles().orElse(List.of());
+        if( !roles.isEmpty() ) {
+            appendSeparator(stringBuilder);
+            stringBuilder.append("\"roles\":");
+            appendArray(stringBuilder, roles);
+        }
+
+        for (Map.Entry<String, String> claim : profile.claims().entrySet()) {
+            if( reservedClaims.contains(claim.getKey()) )
+                throw new IllegalArgumentException("claim " + claim.getKey() + " is set more than once or is reserved");
+
+            appendSeparator(stringBuilder);
+            JsonStrings.appendString(stringBuilder, claim.getKey());
+            stringBuilder.append(':');
+            JsonStrings.appendString(stringBuilder, claim.getValue());
+            reservedClaims.add(claim.getKey());
+        }
+
+        return new ClaimProfile(name,
+                profile.issuer().orElse(defaultIssuer),
+                secondsToExpiration,
+                stringBuilder.toString(),
+                Set.copyOf(reservedClaims));
+    }
+
+    private static void appendSeparator(StringBuilder stringBuilder) {
+        if( stringBuilder.length() > 0 )
+            stringBuilder.append(',');
+    }
+
+    private static void appendArray(StringBuilder stringBuilder, List<String> values) {
+        stringBuilder.append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if( i > 0 )
+                stringBuilder.append(',');
+            JsonStrings.appendString(stringBuilder, values.get(i));
+        }
+        stringBuilder.append(']');
+    }
+}
@@ -0,0 +1,61 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+
+/**
+ * The signing and verification material for a single tenant as loaded by {@link TenantKeyRegistry}.  Instances are
+ * immutable and the contained Algorithm and JWTVerifier are thread safe so a Tenant can be shared freely between
+ * requests.
+ */
+public final class Tenant {
+    private final String tenantId;
+    private final String issuer;
+    private final int secondsToExpiration;
+    private final Algorithm signingAlgorithm;
+    private final JWTVerifier verifier;
+
+    Tenant(String tenantId, String issuer, int secondsToExpiration, Algorithm signingAlgorithm, JWTVerifier verifier) {
+        this.tenantId = tenantId;
+        this.issuer = issuer;
+        this.secondsToExpiration = secondsToExpiration;
+        this.signingAlgorithm = signingAlgorithm;
+        this.verifier = verifier;
+    }
+
+    /**
+     * @return the id of the tenant.  This is also the "kid" header of every token issued for the tenant.
+     */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * @return the "iss" that tokens for this tenant are issued with and validated against
+     */
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * @return the TTL, in seconds, of tokens issued for this tenant
+     */
+    public int getSecondsToExpiration() {
+        return secondsToExpiration;
+    }
+
+    /**
+     * @return true if a private key was found for this tenant and it can therefore issue tokens
+     */
+    public boolean canSign() {
+        return signingAlgorithm != null;
+    }
+
+    Algorithm getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    JWTVerifier getVerifier() {
+        return verifier;
+    }
+}
@@ -0,0 +1,194 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Maps a tenant id to the keys and issuer of that tenant.  Tenants live in a local directory, one subdirectory per
+ * tenant, named by the tenant id:
+ * <br/>
+ * <code>
+ *     ${security.jwt.tenants.directory}/acme/tenant.properties<br/>
+ *     ${security.jwt.tenants.directory}/acme/public.pem<br/>
+ *     ${security.jwt.tenants.directory}/acme/private.pkcs8<br/>
+ * </code>
+ * <br/>
+ * tenant.properties must contain an <code>issuer</code> and may contain <code>secondsToExpiration</code>.  The key
+ * files have the same format as the classpath keys described in {@link JWTTokenUtil}.  The private key is optional -
+ * a tenant without one can only have its tokens validated.
+ * <br/>
+ * Tenants are loaded the first time they are asked for and kept in a cache of at most
+ * <code>security.jwt.tenants.cacheSize</code> entries so memory does not grow with the number of tenants on disk.
+ * The cache is a Caffeine cache so lookups don't contend on a lock.
+ * <br/>
+ * The tenant id usually comes from the "kid" of an untrusted token.  So that made up ids don't go to the disk on
+ * every request, ids that could not be loaded are remembered for <code>security.jwt.tenants.unknownSeconds</code>
+ * in a second cache of at most <code>security.jwt.tenants.unknownCacheSize</code> entries.  A tenant added to the
+ * directory can take that long to be found.
+ */
+@ApplicationScoped
+public class TenantKeyRegistry {
+    private static final Pattern TENANT_ID_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "security.jwt.tenants.directory")
+    Optional<String> tenantsDirectory;
+
+    @ConfigProperty(name = "security.jwt.tenants.cacheSize", defaultValue = "1000")
+    int cacheSize;
+
+    @ConfigProperty(name = "security.jwt.tenants.unknownCacheSize", defaultValue = "10000")
+    int unknownCacheSize;
+
+    @ConfigProperty(name = "security.jwt.tenants.unknownSeconds", defaultValue = "30")
+    int unknownSeconds;
+
+    @ConfigProperty(name = "security.jwt.default.secondsToExpiration", defaultValue = "3600")
+    int defaultSecondsToExpiration;
+
+    private Path tenantsRoot;
+
+    private Cache<String, Tenant> tenants;
+
+    private Cache<String, Boolean> unknownTenants;
+
+    @PostConstruct
+    protected void postConstruct() {
+        tenantsRoot = tenantsDirectory.map(Paths::get).orElse(null);
+
+        tenants = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        unknownTenants = Caffeine.newBuilder()
+                .maximumSize(unknownCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(unknownSeconds))
+                .build();
+    }
+
+    /**
+     * @return true if a tenant directory has been configured
+     */
+    public boolean isEnabled() {
+        return tenantsRoot != null;
+    }
+
+    /**
+     * Gets a tenant, loading it from disk if it is not already cached.
+     *
+     * @param tenantId the id of the tenant.  For a token this is the "kid" header.
+     *
+     * @return the Tenant or null if multi-tenancy is disabled or there is no such tenant
+     */
+    public Tenant getTenant(String tenantId) {
+        if( (tenantsRoot == null) || (tenantId == null) )
+            return null;
+
+        if( unknownTenants.getIfPresent(tenantId) != null )
+            return null;
+
+        //
+        // Caffeine loads each tenant once while other callers of the same tenant wait for it; callers of other
+        // tenants carry on.  a null result isn't stored so a missing tenant goes in the negative cache instead
+        //
+        Tenant tenant = tenants.get(tenantId, this::loadTenant);
+        if( tenant == null )
+            unknownTenants.put(tenantId, Boolean.TRUE);
+
+        return tenant;
+    }
+
+    /**
+     * @return the number of tenants currently cached
+     */
+    public int getCachedTenantCount() {
+        tenants.cleanUp();
+
+        return (int) tenants.estimatedSize();
+    }
+
+    private Tenant loadTenant(String tenantId) {
+        //
+        // the tenant id comes from an untrusted token header so keep it from walking out of the tenant directory
+        //
+        if( !TENANT_ID_PATTERN.matcher(tenantId).matches() ) {
+            logger.debug("rejecting malformed tenant id");
+            return null;
+        }
+
+        Path tenantDirectory = tenantsRoot.resolve(tenantId);
+        Path propertiesFile = tenantDirectory.resolve("tenant.properties");
+        Path publicKeyFile = tenantDirectory.resolve("public.pem");
+        Path privateKeyFile = tenantDirectory.resolve("private.pkcs8");
+
+        if( !Files.isRegularFile(propertiesFile) || !Files.isRegularFile(publicKeyFile) ) {
+            logger.debug("no tenant found for id " + tenantId);
+            return null;
+        }
+
+        try {
+            Properties properties = new Properties();
+            try (InputStream inputStream = Files.newInputStream(propertiesFile)) {
+                properties.load(inputStream);
+            }
+
+            String issuer = properties.getProperty("issuer");
+            if( issuer == null ) {
+                logger.error("tenant " + tenantId + " has no issuer set");
+                return null;
+            }
+
+            int secondsToExpiration = Integer.parseInt(properties.getProperty("secondsToExpiration",
+                    Integer.toString(defaultSecondsToExpiration)));
+
+            RSAPublicKey publicKey;
+            try (InputStream inputStream = Files.newInputStream(publicKeyFile)) {
+                publicKey = KeyLoader.readPublicKey(inputStream);
+            }
+
+            RSAPrivateKey privateKey = null;
+            if( Files.isRegularFile(privateKeyFile) ) {
+                try (InputStream inputStream = Files.newInputStream(privateKeyFile)) {
+                    privateKey = KeyLoader.readPrivateKey(inputStream);
+                }
+            }
+
+            Algorithm verifyingAlgorithm = Algorithm.RSA256(publicKey, null);
+            Algorithm signingAlgorithm = privateKey == null ? null : Algorithm.RSA256(publicKey, privateKey);
+
+            return new Tenant(tenantId,
+                    issuer,
+                    secondsToExpiration,
+                    signingAlgorithm,
+                    JWT.require(verifyingAlgorithm).withIssuer(issuer).build());
+        } catch (IOException | IllegalArgumentException | NoSuchAlgorithmException | InvalidKeySpecException exception) {
+            //
+            // IllegalArgumentException covers a bad secondsToExpiration as well as a key file that isn't Base64
+            //
+            logger.error("Exception loading tenant " + tenantId + " - " + exception.getMessage());
+            return null;
+        }
+    }
+}
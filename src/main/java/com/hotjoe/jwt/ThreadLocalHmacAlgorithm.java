@@ -0,0 +1,115 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * An HMAC Algorithm for the Auth0 library that keeps one initialized Mac per thread.  The stock
+ * {@link Algorithm#HMAC256(byte[])} looks up and initializes a new Mac for every sign and verify.  For the short
+ * lived internal tokens that is a noticeable part of the cost so here the Mac is built once per thread and only
+ * reset between uses.  A Mac is not thread safe, hence the ThreadLocal.
+ */
+final class ThreadLocalHmacAlgorithm extends Algorithm {
+    private final ThreadLocal<Mac> threadMac;
+
+    /**
+     * @param name the JWT "alg" name - HS256, HS384 or HS512
+     * @param macAlgorithm the JCA name of the matching Mac - HmacSHA256, HmacSHA384 or HmacSHA512
+     * @param secret the shared secret
+     *
+     * @throws IllegalArgumentException if the Mac algorithm is not available or the secret is not usable
+     */
+    ThreadLocalHmacAlgorithm(String name, String macAlgorithm, byte[] secret) {
+        super(name, macAlgorithm);
+
+        SecretKeySpec secretKeySpec = new SecretKeySpec(secret, macAlgorithm);
+
+        //
+        // build one up front so a bad configuration fails at startup rather than on the first request
+        //
+        newMac(macAlgorithm, secretKeySpec);
+
+        threadMac = ThreadLocal.withInitial(() -> newMac(macAlgorithm, secretKeySpec));
+    }
+
+    /**
+     * Creates the Algorithm for a JWT "alg" name.
+     *
+     * @param name HS256, HS384 or HS512
+     * @param secret the shared secret
+     *
+     * @return the Algorithm
+     *
+     * @throws IllegalArgumentException if the name is not an HMAC algorithm
+     */
+    static ThreadLocalHmacAlgorithm forName(String name, byte[] secret) {
+        return switch (name) {
+            case "HS256" -> new ThreadLocalHmacAlgorithm(name, "HmacSHA256", secret);
+            case "HS384" -> new ThreadLocalHmacAlgorithm(name, "HmacSHA384", secret);
+            case "HS512" -> new ThreadLocalHmacAlgorithm(name, "HmacSHA512", secret);
+            default -> throw new IllegalArgumentException("unsupported HMAC algorithm " + name);
+        };
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(jwt.getSignature());
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new SignatureVerificationException(this, illegalArgumentException);
+        }
+
+        Mac mac = threadMac.get();
+        mac.update(jwt.getHeader().getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) '.');
+        mac.update(jwt.getPayload().getBytes(StandardCharsets.US_ASCII));
+
+        if( !MessageDigest.isEqual(mac.doFinal(), signature) )
+            throw new SignatureVerificationException(this);
+    }
+
+    @Override
+    public byte[] sign(byte[] headerBytes, byte[] payloadBytes) throws SignatureGenerationException {
+        Mac mac = threadMac.get();
+        mac.update(headerBytes);
+        mac.update((byte) '.');
+        mac.update(payloadBytes);
+
+        return mac.doFinal();
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        return threadMac.get().doFinal(contentBytes);
+    }
+
+    /**
+     * @return the length, in bytes, of the MAC this algorithm produces.  RFC 7518 asks for a secret at least this
+     *         long.
+     */
+    int getMacLength() {
+        return threadMac.get().getMacLength();
+    }
+
+    private static Mac newMac(String macAlgorithm, SecretKeySpec secretKeySpec) {
+        try {
+            Mac mac = Mac.getInstance(macAlgorithm);
+            mac.init(secretKeySpec);
+
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException exception) {
+            throw new IllegalArgumentException("unable to create " + macAlgorithm + " - " + exception.getMessage(), exception);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hotjoe.json.JsonStrings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers <a href="https://www.rfc-editor.org/rfc/rfc7662.html">RFC 7662</a> token introspection requests.  A
+ * token is verified once with {@link JWTTokenUtil#validateToken(String)} and the response - <code>active</code> plus
+ * the claims listed in <code>security.jwt.introspection.claims</code> - is written as JSON straight from the
+ * decoded token.
+ * <br/>
+ * Active responses are kept in a Caffeine cache of at most <code>security.jwt.introspection.cacheSize</code> tokens.
+ * Each entry expires at the "exp" of its token so a cached answer can never outlive the token, and a token without
+ * an "exp" is never cached.  A hit skips signature verification, decoding and serialization entirely.
+ * Inactive answers are not cached as there is no trustworthy expiry to bound them by.
+ */
+@ApplicationScoped
+public class TokenIntrospector {
+    static final String INACTIVE = "{\"active\":false}";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "security.jwt.introspection.claims",
+            defaultValue = "sub,iss,aud,exp,iat,nbf,jti,scope,email,given_name,family_name")
+    List<String> claims;
+
+    @ConfigProperty(name = "security.jwt.introspection.cacheSize", defaultValue = "10000")
+    int cacheSize;
+
+    private String[] claimNames;
+
+    //
+    // the ,"name": prefix of every projected claim, built once
+    //
+    private String[] claimPrefixes;
+
+    private Cache<String, CachedIntrospection> introspections;
+
+    private Counter cacheHitCounter;
+    private Counter cacheMissCounter;
+
+    @PostConstruct
+    protected void postConstruct() {
+        claimNames = new String[claims.size()];
+        claimPrefixes = new String[claims.size()];
+
+        for (int i = 0; i < claims.size(); i++) {
+            String claim = claims.get(i).trim();
+
+            if( claim.isEmpty() || "active".equals(claim) ) {
+                logger.error("security.jwt.introspection.claims may not contain \"" + claim + "\".  Cannot continue!");
+
+                throw new RuntimeException("invalid introspection claim \"" + claim + "\"");
+            }
+
+            claimNames[i] = claim;
+
+            StringBuilder stringBuilder = new StringBuilder(",");
+            JsonStrings.appendString(stringBuilder, claim);
+            claimPrefixes[i] = stringBuilder.append(':').toString();
+        }
+
+        introspections = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, CachedIntrospection>() {
+                    @Override
+                    public long expireAfterCreate(String token, CachedIntrospection cachedIntrospection, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(cachedIntrospection.expiresAtMillis - System.currentTimeMillis());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, CachedIntrospection cachedIntrospection, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(token, cachedIntrospection, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, CachedIntrospection cachedIntrospection, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        cacheHitCounter = Counter.builder("jwt.introspection.cache.hits")
+                .description("The number of introspections answered from the cache")
+                .register(meterRegistry);
+        cacheMissCounter = Counter.builder("jwt.introspection.cache.misses")
+                .description("The number of introspections that had to verify the token")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Introspects a token.
+     *
+     * @param token the JWT as a String
+     *
+     * @return the RFC 7662 response as JSON.  This is <code>{"active":false}</code> for any token that is not valid.
+     */
+    public String introspect(String token) {
+        if( token == null )
+            return INACTIVE;
+
+        CachedIntrospection cachedIntrospection = introspections.getIfPresent(token);
+
+        if( cachedIntrospection != null ) {
+            cacheHitCounter.increment();
+
+            return cachedIntrospection.json;
+        }
+
+        cacheMissCounter.increment();
+
+        //
+        // concurrent misses on the same token are coalesced by validateToken so only one of them verifies it
+        //
+        DecodedJWT decodedJWT;
+        try {
+            decodedJWT = jwtTokenUtil.validateToken(token);
+        } catch (JWTVerificationException jwtVerificationException) {
+            return INACTIVE;
+        }
+
+        String json = toJson(decodedJWT);
+
+        if( (cacheSize > 0) && (decodedJWT.getExpiresAt() != null) )
+            introspections.put(token, new CachedIntrospection(json, decodedJWT.getExpiresAt().getTime()));
+
+        return json;
+    }
+
+    /**
+     * @return the number of introspections currently cached
+     */
+    public int getCachedIntrospectionCount() {
+        introspections.cleanUp();
+
+        return (int) introspections.estimatedSize();
+    }
+
+    private String toJson(DecodedJWT decodedJWT) {
+        StringBuilder stringBuilder = new StringBuilder(256);
+        stringBuilder.append("{\"active\":true");
+
+        for (int i = 0; i < claimPrefixes.length; i++) {
+            Claim claim = decodedJWT.getClaim(claimNames[i]);
+
+            //
+            // the claim is still the JSON node from the payload so its string form is already valid JSON
+            //
+            if( claim.isMissing() || claim.isNull() )
+                continue;
+
+            stringBuilder.append(claimPrefixes[i]).append(claim);
+        }
+
+        return stringBuilder.append('}').toString();
+    }
+
+    private static final class CachedIntrospection {
+        private final String json;
+        private final long expiresAtMillis;
+
+        CachedIntrospection(String json, long expiresAtMillis) {
+            this.json = json;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package com.hotjoe.services.user;
 
 import com.auth0.jwt.exceptions.JWTCreationException;
-import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.hotjoe.audit.AuditLogException;
+import com.hotjoe.jwt.ClaimProfile;
+import com.hotjoe.jwt.ClaimProfiles;
 import com.hotjoe.jwt.JWTTokenUtil;
+import com.hotjoe.jwt.Tenant;
+import com.hotjoe.jwt.TenantKeyRegistry;
+import com.hotjoe.jwt.TokenIntrospector;
 import com.hotjoe.services.user.model.CreateTokenRequest;
 import com.hotjoe.services.user.model.CreateTokenResponse;
 import com.hotjoe.services.user.model.ValidateTokenRequest;
 import com.hotjoe.services.user.model.ValidateTokenResponse;
+import com.hotjoe.tracing.Spans;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -18,6 +28,7 @@ import org.jboss.logging.Logger;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
@@ -25,6 +36,7 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.Map;
 
 
 /**
@@ -42,6 +54,20 @@ public class UserTokenService {
     @Inject
     JWTTokenUtil jwtTokenUtil;
 
+    @Inject
+    TenantKeyRegistry tenantKeyRegistry;
+
+    @Inject
+    ClaimProfiles claimProfiles;
+
+    @Inject
+    TokenIntrospector tokenIntrospector;
+
+    @Inject
+    OpenTelemetry openTelemetry;
+
+    private Tracer tracer;
+
     @ConfigProperty(name="security.authorization.username")
     String userName;
 
@@ -50,6 +76,8 @@ public class UserTokenService {
 
     @PostConstruct
     protected void postConstruct() {
+        tracer = openTelemetry.getTracer(Spans.INSTRUMENTATION_NAME);
+
         if( (userName == null) || (password == null) ) {
             logger.error("username and/or password is not set.  Cannot continue!");
 
@@ -74,13 +102,15 @@ public class UserTokenService {
             responseCode = "200",
             description = "The new JWT for use in future calls")
     @APIResponse(responseCode = "401", description = "If the passed credentials are incorrect")
-    @APIResponse(responseCode = "400", description = "If the passed credentials are empty or missing")
+    @APIResponse(responseCode = "400", description = "If the passed credentials are empty or missing, the tenant or profile is unknown, the tenant cannot sign or the claims are not allowed")
     public Response getToken( @QueryParam("username") String requestedUsername,
-                              @QueryParam("password") String requestedPassword) {
+                              @QueryParam("password") String requestedPassword,
+                              @QueryParam("tenantId") String requestedTenantId) {
         CreateTokenRequest createTokenRequest = new CreateTokenRequest();
 
         createTokenRequest.setUserName(requestedUsername);
         createTokenRequest.setPassword(requestedPassword);
+        createTokenRequest.setTenantId(requestedTenantId);
 
         return generateToken(createTokenRequest);
     }
@@ -103,7 +133,7 @@ public class UserTokenService {
             responseCode = "200",
             description = "The new JWT for use in future calls")
     @APIResponse(responseCode = "401", description = "If the passed credentials are incorrect")
-    @APIResponse(responseCode = "400", description = "If the passed credentials are empty or missing")
+    @APIResponse(responseCode = "400", description = "If the passed credentials are empty or missing, the tenant or profile is unknown, the tenant cannot sign or the claims are not allowed")
     public Response getToken( @RequestBody( name="createTokenRequest",
             required = true,
             description = "The credentials used to validate and generate a token",
@@ -144,8 +174,8 @@ public class UserTokenService {
             return Response.status(Response.Status.OK)
                     .entity(validateTokenResponse).build();
         }
-        catch(JWTCreationException | SignatureVerificationException jwtCreationException) {
-            validateTokenResponse.setResponse(jwtCreationException.getMessage());
+        catch(JWTVerificationException jwtVerificationException) {
+            validateTokenResponse.setResponse(jwtVerificationException.getMessage());
 
             //
             // does BAD_REQUEST make sense here?  auth0 doesn't split out *what* the error is, just that it
@@ -157,6 +187,162 @@ public class UserTokenService {
         }
     }
 
+    /**
+     * Get a short-lived HMAC signed JWT for service to service calls inside the cluster.  The request body is the
+     * same as for /getToken.  These tokens are cheap to sign and verify but can only be validated by someone holding
+     * the shared secret so they are not meant for external clients.
+     *
+     * @param createTokenRequest a CreateTokenRequest - @see com.hotjoe.model.CreateTokenRequest.
+     *
+     * @return a jakarta.ws.rs.core.Response that contains either an error message (non 200 response) or a
+     *         CreateTokenResponse that contains the JWT.  @see com.hotjoe.model.CreateTokenResponse
+     *
+     */
+    @Path("/getInternalToken")
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Generate a short-lived internal HMAC JWT based on the given credentials.")
+    @APIResponse(content = @Content(schema = @Schema(implementation = CreateTokenResponse.class)),
+            responseCode = "200",
+            description = "The new internal JWT for use in service to service calls")
+    @APIResponse(responseCode = "401", description = "If the passed credentials are incorrect")
+    @APIResponse(responseCode = "400", description = "If the passed credentials are empty or missing")
+    public Response getInternalToken( @RequestBody( name="createTokenRequest",
+            required = true,
+            description = "The credentials used to validate and generate a token",
+            content = @Content(schema = @Schema(implementation = CreateTokenRequest.class)) )
+                                          CreateTokenRequest createTokenRequest) {
+        CreateTokenResponse createTokenResponse = new CreateTokenResponse();
+
+        Response credentialsResponse = checkCredentials(createTokenRequest, createTokenResponse);
+        if( credentialsResponse != null )
+            return credentialsResponse;
+
+        try {
+            createTokenResponse.setMessage(Response.Status.OK.getReasonPhrase());
+            createTokenResponse.setToken(jwtTokenUtil.generateInternalJWTToken(userName));
+
+            return Response.ok(createTokenResponse).build();
+        }
+        catch (JWTCreationException | AuditLogException exception) {
+            logger.error("unable to create internal token: " + exception.getMessage());
+
+            createTokenResponse.setMessage(Response.Status.INTERNAL_SERVER_ERROR.getReasonPhrase());
+
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(createTokenResponse).build();
+        }
+    }
+
+    /**
+     * Validate an internal JWT via a POST.  The request body simply contains the token.
+     *
+     * @param validateTokenRequest a ValidateTokenRequest - @see com.hotjoe.model.ValidateTokenRequest.
+     *
+     * @return a jakarta.ws.rs.core.Response that contains either an error message (non 200 response) or a
+     *         ValidateTokenResponse.  @see com.hotjoe.model.ValidateTokenResponse
+     *
+     */
+    @Path("/validateInternalToken")
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Validates an internal JWT that was generated by /getInternalToken.")
+    @APIResponse(content = @Content(schema = @Schema(implementation = ValidateTokenResponse.class)),
+            responseCode = "200",
+            description = "The JWT is valid")
+    @APIResponse(responseCode = "400", description = "If the passed JWT is invalid")
+    public Response validateInternalToken(@RequestBody( name="validateTokenRequest",
+            required = true,
+            description = "The token to validate",
+            content = @Content(schema = @Schema(implementation = ValidateTokenRequest.class)) )
+                                              ValidateTokenRequest validateTokenRequest) {
+        ValidateTokenResponse validateTokenResponse = new ValidateTokenResponse();
+
+        try {
+            jwtTokenUtil.validateInternalToken(validateTokenRequest.getToken());
+            validateTokenResponse.setResponse("token ok");
+
+            return Response.status(Response.Status.OK)
+                    .entity(validateTokenResponse).build();
+        }
+        catch(JWTVerificationException jwtVerificationException) {
+            validateTokenResponse.setResponse(jwtVerificationException.getMessage());
+
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(validateTokenResponse).build();
+        }
+    }
+
+    /**
+     * Introspect a JWT as described in <a href="https://www.rfc-editor.org/rfc/rfc7662.html">RFC 7662</a>.  The token
+     * is posted as a form parameter and the response is <code>active</code> plus the decoded claims, so a resource
+     * server doesn't need to decode the token again itself.  Like /validateToken this is not protected - the RFC
+     * expects a real deployment to require the caller to authenticate.
+     *
+     * @param token the JWT to introspect
+     * @param tokenTypeHint the "token_type_hint" from the RFC.  Only access tokens are issued here so it is ignored.
+     *
+     * @return a jakarta.ws.rs.core.Response that contains the introspection JSON or, if there is no token, an
+     *         "invalid_request" error
+     *
+     */
+    @Path("/introspect")
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Introspects a JWT that was generated with this code, returning whether it is active and its claims.")
+    @APIResponse(responseCode = "200",
+            description = "{\"active\":true} and the claims of the JWT if it is valid, otherwise {\"active\":false}")
+    @APIResponse(responseCode = "400", description = "If no token was passed")
+    public Response introspect(@FormParam("token") String token,
+                               @FormParam("token_type_hint") String tokenTypeHint) {
+        if( (token == null) || token.isBlank() ) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\":\"invalid_request\"}").build();
+        }
+
+        //
+        // the introspector hands back ready made JSON so it goes out as-is
+        //
+        return Response.ok(tokenIntrospector.introspect(token)).build();
+    }
+
+
+    /**
+     * Checks the passed credentials against the configured ones.
+     *
+     * @param createTokenRequest a CreateTokenRequest - @see com.hotjoe.model.CreateTokenRequest.
+     * @param createTokenResponse the response to fill in with the error message if the check fails
+     *
+     * @return null if the credentials are ok, otherwise the error Response to send back
+     */
+    private Response checkCredentials(CreateTokenRequest createTokenRequest, CreateTokenResponse createTokenResponse) {
+        Span span = tracer.spanBuilder("user.checkCredentials").startSpan();
+
+        try {
+            if( createTokenRequest == null ) {
+                Spans.fail(span, "missing request");
+                createTokenResponse.setMessage(Response.Status.BAD_REQUEST.getReasonPhrase());
+
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(createTokenResponse).build();
+            }
+
+            if( !userName.equals(createTokenRequest.getUserName()) || !password.equals(createTokenRequest.getPassword())) {
+                Spans.fail(span, "bad credentials");
+                createTokenResponse.setMessage(Response.Status.UNAUTHORIZED.getReasonPhrase());
+
+                return Response.status(Response.Status.UNAUTHORIZED)
+                        .entity(createTokenResponse).build();
+            }
+
+            return null;
+        } finally {
+            span.end();
+        }
+    }
 
     /**
      * Generates the token from the requested parameters.
@@ -169,27 +355,69 @@ public class UserTokenService {
     private Response generateToken(CreateTokenRequest createTokenRequest) {
         CreateTokenResponse createTokenResponse = new CreateTokenResponse();
 
-        if( createTokenRequest == null ) {
-            createTokenResponse.setMessage(Response.Status.BAD_REQUEST.getReasonPhrase());
+        Response credentialsResponse = checkCredentials(createTokenRequest, createTokenResponse);
+        if( credentialsResponse != null )
+            return credentialsResponse;
+
+        //
+        // only a profile can carry extra claims - refuse them rather than quietly leaving them out
+        //
+        Map<String, Object> claims = createTokenRequest.getClaims();
+        if( (claims != null) && !claims.isEmpty() && (createTokenRequest.getProfile() == null) ) {
+            createTokenResponse.setMessage("claims can only be set along with a profile");
 
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity(createTokenResponse).build();
         }
 
-        if( !userName.equals(createTokenRequest.getUserName()) || !password.equals(createTokenRequest.getPassword())) {
-            createTokenResponse.setMessage(Response.Status.UNAUTHORIZED.getReasonPhrase());
+        //
+        // a profile is signed with the default key so it can't be combined with a tenant
+        //
+        ClaimProfile claimProfile = null;
+        if( createTokenRequest.getProfile() != null ) {
+            claimProfile = claimProfiles.getProfile(createTokenRequest.getProfile());
 
-            return Response.status(Response.Status.UNAUTHORIZED)
-                    .entity(createTokenResponse).build();
+            if( (claimProfile == null) || (createTokenRequest.getTenantId() != null) ) {
+                createTokenResponse.setMessage(Response.Status.BAD_REQUEST.getReasonPhrase());
+
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(createTokenResponse).build();
+            }
+        }
+
+        Tenant tenant = null;
+        if( createTokenRequest.getTenantId() != null ) {
+            tenant = tenantKeyRegistry.getTenant(createTokenRequest.getTenantId());
+
+            //
+            // a tenant without a private key can only have its tokens validated
+            //
+            if( (tenant == null) || !tenant.canSign() ) {
+                createTokenResponse.setMessage(Response.Status.BAD_REQUEST.getReasonPhrase());
+
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(createTokenResponse).build();
+            }
         }
 
         try {
             createTokenResponse.setMessage(Response.Status.OK.getReasonPhrase());
-            createTokenResponse.setToken(jwtTokenUtil.generateJWTToken(userName));
+            if( claimProfile != null )
+                createTokenResponse.setToken(jwtTokenUtil.generateJWTToken(claimProfile, userName, createTokenRequest.getClaims()));
+            else if( tenant != null )
+                createTokenResponse.setToken(jwtTokenUtil.generateJWTToken(tenant, userName, null, null, null));
+            else
+                createTokenResponse.setToken(jwtTokenUtil.generateJWTToken(userName));
 
             return Response.ok(createTokenResponse).build();
         }
-        catch (JWTCreationException exception) {
+        catch (IllegalArgumentException exception) {
+            createTokenResponse.setMessage(exception.getMessage());
+
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(createTokenResponse).build();
+        }
+        catch (JWTCreationException | AuditLogException exception) {
             logger.error("unable to create token: " + exception.getMessage());
 
             createTokenResponse.setMessage(Response.Status.INTERNAL_SERVER_ERROR.getReasonPhrase());
@@ -2,6 +2,8 @@ package com.hotjoe.services.user.model;
 
 import io.smallrye.common.constraint.NotNull;
 
+import java.util.Map;
+
 public class CreateTokenRequest {
     @NotNull
     private String userName;
@@ -9,6 +11,12 @@ public class CreateTokenRequest {
     @NotNull
     private String password;
 
+    private String tenantId;
+
+    private String profile;
+
+    private Map<String, Object> claims;
+
     public String getUserName() {
         return userName;
     }
@@ -24,4 +32,28 @@ public class CreateTokenRequest {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public void setProfile(String profile) {
+        this.profile = profile;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    public void setClaims(Map<String, Object> claims) {
+        this.claims = claims;
+    }
 }
@@ -0,0 +1,71 @@
+package com.hotjoe.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.ReaderInterceptor;
+import jakarta.ws.rs.ext.ReaderInterceptorContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+/**
+ * Times the JSON binding of request bodies and the serialization of response bodies.  These happen outside of the
+ * resource methods so this is the only place they can be seen.  The spans are children of the HTTP server span
+ * created by Quarkus, next to the spans from the resource method itself.
+ */
+@Provider
+public class EntityTracingInterceptor implements ReaderInterceptor, WriterInterceptor {
+    //
+    // providers are created during static init, before the OpenTelemetry SDK is configured, so look it up lazily
+    //
+    @Inject
+    Instance<OpenTelemetry> openTelemetry;
+
+    private volatile Tracer tracer;
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
+        Span span = getTracer().spanBuilder("http.readEntity").startSpan();
+
+        try {
+            return context.proceed();
+        } catch (IOException | RuntimeException exception) {
+            Spans.fail(span, exception);
+
+            throw exception;
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        Span span = getTracer().spanBuilder("http.writeEntity").startSpan();
+
+        try {
+            context.proceed();
+        } catch (IOException | RuntimeException exception) {
+            Spans.fail(span, exception);
+
+            throw exception;
+        } finally {
+            span.end();
+        }
+    }
+
+    private Tracer getTracer() {
+        Tracer current = tracer;
+        if( current == null ) {
+            current = openTelemetry.get().getTracer(Spans.INSTRUMENTATION_NAME);
+            tracer = current;
+        }
+
+        return current;
+    }
+}
@@ -0,0 +1,47 @@
+package com.hotjoe.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+
+/**
+ * The span attributes shared by the token phases and a helper to mark a phase as failed.
+ */
+public final class Spans {
+    /**
+     * The instrumentation scope of the spans created by this application.  Tracers are taken from the injected
+     * OpenTelemetry rather than injected directly as the injected Tracer comes from GlobalOpenTelemetry, which is
+     * not always set up when beans are created.
+     */
+    public static final String INSTRUMENTATION_NAME = "com.hotjoe";
+
+    public static final AttributeKey<String> ALGORITHM = AttributeKey.stringKey("jwt.algorithm");
+    public static final AttributeKey<String> ISSUER = AttributeKey.stringKey("jwt.issuer");
+    public static final AttributeKey<String> FAILURE_REASON = AttributeKey.stringKey("jwt.failure_reason");
+
+    private Spans() {
+    }
+
+    /**
+     * Marks a span as failed.  The failure reason attribute is the simple name of the exception, for example
+     * TokenExpiredException, so it can be grouped on.  The message goes in the status description.
+     *
+     * @param span the span to mark
+     * @param throwable why it failed
+     */
+    public static void fail(Span span, Throwable throwable) {
+        span.setAttribute(FAILURE_REASON, throwable.getClass().getSimpleName());
+        span.setStatus(StatusCode.ERROR, throwable.getMessage());
+    }
+
+    /**
+     * Marks a span as failed for a reason that is not an exception.
+     *
+     * @param span the span to mark
+     * @param reason why it failed
+     */
+    public static void fail(Span span, String reason) {
+        span.setAttribute(FAILURE_REASON, reason);
+        span.setStatus(StatusCode.ERROR, reason);
+    }
+}
@@ -0,0 +1,186 @@
+package com.hotjoe;
+
+import com.hotjoe.jwt.JWTTokenUtil;
+import com.hotjoe.services.user.model.CreateTokenRequest;
+import com.hotjoe.services.user.model.ValidateTokenRequest;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Fails the build when the issue or validate paths allocate more than the budget checked in to
+ * allocation-budget.properties.  Allocations are counted with the HotSpot per-thread allocation counters.  The
+ * util tests count the calling thread only.  The HTTP tests count only the server's event loop and worker threads,
+ * so neither the rest-assured client on the test thread nor background threads such as the audit writer or the
+ * span exporter are included.
+ * <br/>
+ * If a change legitimately needs more memory raise the budget in the same commit so the increase gets reviewed.
+ */
+@QuarkusTest
+public class AllocationBudgetTest {
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 500;
+    private static final int HTTP_ITERATIONS = 100;
+    private static final int HTTP_WARMUP_ITERATIONS = 50;
+
+    /**
+     * The name prefixes of the Vert.x event loop threads and the Quarkus worker pool that handle requests.
+     */
+    private static final List<String> SERVER_THREAD_PREFIXES = List.of("vert.x-eventloop-thread-", "executor-thread-");
+
+    private static final Logger logger = Logger.getLogger(AllocationBudgetTest.class);
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+    private Properties budget;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters are not available on this JVM");
+
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        budget = new Properties();
+        try (InputStream inputStream = AllocationBudgetTest.class.getResourceAsStream("/allocation-budget.properties")) {
+            budget.load(inputStream);
+        }
+    }
+
+    @Test
+    public void testGenerateJWTTokenAllocations() {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            jwtTokenUtil.generateJWTToken("the subject");
+
+        long start = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++)
+            jwtTokenUtil.generateJWTToken("the subject");
+
+        assertWithinBudget("generateJWTToken", (threadMXBean.getCurrentThreadAllocatedBytes() - start) / ITERATIONS);
+    }
+
+    @Test
+    public void testValidateTokenAllocations() {
+        String jwt = jwtTokenUtil.generateJWTToken("the subject");
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            jwtTokenUtil.validateToken(jwt);
+
+        long start = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++)
+            jwtTokenUtil.validateToken(jwt);
+
+        assertWithinBudget("validateToken", (threadMXBean.getCurrentThreadAllocatedBytes() - start) / ITERATIONS);
+    }
+
+    @Test
+    public void testHttpRoundTripAllocations() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+
+        for (int i = 0; i < HTTP_WARMUP_ITERATIONS; i++)
+            getToken(createTokenRequest);
+
+        Map<Long, Long> start = serverThreadsAllocatedBytes();
+        for (int i = 0; i < HTTP_ITERATIONS; i++)
+            getToken(createTokenRequest);
+        assertWithinBudget("http.getToken", serverBytesSince(start) / HTTP_ITERATIONS);
+
+        ValidateTokenRequest validateTokenRequest = new ValidateTokenRequest();
+        validateTokenRequest.setToken(getToken(createTokenRequest));
+
+        for (int i = 0; i < HTTP_WARMUP_ITERATIONS; i++)
+            validateToken(validateTokenRequest);
+
+        start = serverThreadsAllocatedBytes();
+        for (int i = 0; i < HTTP_ITERATIONS; i++)
+            validateToken(validateTokenRequest);
+        assertWithinBudget("http.validateToken", serverBytesSince(start) / HTTP_ITERATIONS);
+    }
+
+    private String getToken(CreateTokenRequest createTokenRequest) {
+        return given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().path("token");
+    }
+
+    private void validateToken(ValidateTokenRequest validateTokenRequest) {
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+    }
+
+    /**
+     * @return the bytes allocated so far by each server thread, keyed by thread id
+     */
+    private Map<Long, Long> serverThreadsAllocatedBytes() {
+        Map<Long, Long> allocatedBytes = new HashMap<>();
+
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+            //
+            // a thread that has exited since it was listed has no info and reports -1
+            //
+            if( (threadInfo == null) || SERVER_THREAD_PREFIXES.stream().noneMatch(threadInfo.getThreadName()::startsWith) )
+                continue;
+
+            long bytes = threadMXBean.getThreadAllocatedBytes(threadInfo.getThreadId());
+            if( bytes > 0 )
+                allocatedBytes.put(threadInfo.getThreadId(), bytes);
+        }
+
+        return allocatedBytes;
+    }
+
+    /**
+     * @param start what {@link #serverThreadsAllocatedBytes()} returned at the start
+     *
+     * @return the bytes the server threads allocated since then.  A thread started in between counts from zero.
+     */
+    private long serverBytesSince(Map<Long, Long> start) {
+        long bytes = 0;
+
+        for (Map.Entry<Long, Long> entry : serverThreadsAllocatedBytes().entrySet())
+            bytes += entry.getValue() - start.getOrDefault(entry.getKey(), 0L);
+
+        return bytes;
+    }
+
+    private void assertWithinBudget(String name, long bytesPerCall) {
+        long maxBytesPerCall = Long.parseLong(budget.getProperty(name));
+
+        logger.info("allocation " + name + ": " + bytesPerCall + " bytes/call, budget " + maxBytesPerCall);
+
+        assert( bytesPerCall <= maxBytesPerCall ) :
+                name + " allocated " + bytesPerCall + " bytes per call, budget is " + maxBytesPerCall;
+    }
+}
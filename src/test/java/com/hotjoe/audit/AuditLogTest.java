@@ -0,0 +1,193 @@
+package com.hotjoe.audit;
+
+import com.hotjoe.jwt.JWTTokenUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusMock;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@QuarkusTest
+public class AuditLogTest {
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    AuditLog auditLog;
+
+    @Test
+    public void testIssuedAndRejected() throws Exception {
+        String subject = "audit \"subject\"\n" + UUID.randomUUID();
+
+        String jwt = jwtTokenUtil.generateJWTToken(subject);
+        String[] jwtParts = jwt.split("\\.");
+        String newJWT = jwtParts[0] + "." + jwtParts[1] + "." + UUID.randomUUID();
+
+        assert( !jwtTokenUtil.isTokenValid(newJWT) );
+        assert( !jwtTokenUtil.isTokenValid("not a jwt") );
+
+        assert( auditLog.flush(5000) );
+
+        List<AuditEvent> auditEvents = new ArrayList<>();
+        new AuditLogReader().read(auditLog.getDirectory(), auditEvents::add);
+
+        AuditEvent issued = auditEvents.stream()
+                .filter(auditEvent -> AuditEvent.ISSUED.equals(auditEvent.getType()) && subject.equals(auditEvent.getSub()))
+                .findFirst()
+                .orElseThrow();
+        assert( issued.getJti() != null );
+        assert( issued.getExp() != null );
+        assert( issued.getIss() != null );
+
+        AuditEvent rejected = auditEvents.stream()
+                .filter(auditEvent -> AuditEvent.REJECTED.equals(auditEvent.getType()) && subject.equals(auditEvent.getSub()))
+                .findFirst()
+                .orElseThrow();
+        assert( issued.getJti().equals(rejected.getJti()) );
+        assert( rejected.getReason() != null );
+    }
+
+    @Test
+    public void testWriterRecovers() throws Exception {
+        Path directory = Paths.get("target", "audit-" + UUID.randomUUID());
+        AuditLog blockingLog = newAuditLog(directory, AuditLog.BackpressurePolicy.BLOCK, 0);
+
+        try {
+            blockingLog.issued("jti-0", "sub", "iss", null);
+            assert( blockingLog.flush(5000) );
+
+            //
+            // every event starts a new segment, so once the directory is a file the writer can't open one
+            //
+            deleteDirectory(directory);
+            Files.createFile(directory);
+
+            for (int i = 1; i <= 4; i++)
+                blockingLog.issued("jti-" + i, "sub", "iss", null);
+
+            for (int i = 0; (i < 500) && blockingLog.isHealthy(); i++)
+                Thread.sleep(10);
+            assert( !blockingLog.isHealthy() );
+
+            //
+            // the queue is full and the writer is failing so BLOCK must refuse rather than drop
+            //
+            try {
+                blockingLog.issued("jti-5", "sub", "iss", null);
+                assert( false );
+            } catch (AuditLogException expected) {
+                // expected
+            }
+
+            Files.delete(directory);
+            Files.createDirectories(directory);
+
+            assert( blockingLog.flush(10000) );
+            assert( blockingLog.isHealthy() );
+
+            List<String> jtis = new ArrayList<>();
+            new AuditLogReader().read(directory, auditEvent -> jtis.add(auditEvent.getJti()));
+            assert( jtis.equals(List.of("jti-1", "jti-2", "jti-3", "jti-4")) ) : jtis;
+        } finally {
+            blockingLog.preDestroy();
+        }
+    }
+
+    @Test
+    public void testRejectedNeverBlocks() throws Exception {
+        Path directory = Paths.get("target", "audit-" + UUID.randomUUID());
+        AuditLog blockingLog = newAuditLog(directory, AuditLog.BackpressurePolicy.BLOCK, 0);
+
+        try {
+            deleteDirectory(directory);
+            Files.createFile(directory);
+
+            blockingLog.issued("jti-0", "sub", "iss", null);
+            for (int i = 0; (i < 500) && blockingLog.isHealthy(); i++)
+                Thread.sleep(10);
+            assert( !blockingLog.isHealthy() );
+
+            String jwt = jwtTokenUtil.generateJWTToken(UUID.randomUUID().toString());
+            String[] jwtParts = jwt.split("\\.");
+            String newJWT = jwtParts[0] + "." + jwtParts[1] + "." + UUID.randomUUID();
+
+            QuarkusMock.installMockForType(blockingLog, AuditLog.class);
+
+            //
+            // rejected events only get half of the queue, so these fill it and the rest are dropped rather than
+            // blocking the caller or failing the validation
+            //
+            for (int i = 0; i < 10; i++)
+                assert( !jwtTokenUtil.isTokenValid(newJWT) );
+
+            assert( blockingLog.meterRegistry.counter("audit.rejected.dropped").count() > 0 );
+            assert( blockingLog.meterRegistry.counter("audit.events.dropped").count() == 0 );
+
+            //
+            // which leaves room for issued tokens
+            //
+            blockingLog.issued("jti-1", "sub", "iss", null);
+        } finally {
+            blockingLog.preDestroy();
+        }
+    }
+
+    @Test
+    public void testMaxSegments() throws Exception {
+        Path directory = Paths.get("target", "audit-" + UUID.randomUUID());
+        AuditLog rollingLog = newAuditLog(directory, AuditLog.BackpressurePolicy.DROP, 2);
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                rollingLog.issued("jti-" + i, "sub", "iss", null);
+                assert( rollingLog.flush(5000) );
+            }
+
+            List<String> jtis = new ArrayList<>();
+            new AuditLogReader().read(directory, auditEvent -> jtis.add(auditEvent.getJti()));
+            assert( jtis.equals(List.of("jti-3", "jti-4")) ) : jtis;
+        } finally {
+            rollingLog.preDestroy();
+        }
+    }
+
+    /**
+     * @return a started AuditLog that writes every event to its own segment
+     */
+    private static AuditLog newAuditLog(Path directory, AuditLog.BackpressurePolicy backpressurePolicy, int maxSegments) {
+        AuditLog auditLog = new AuditLog();
+        auditLog.logger = Logger.getLogger(AuditLog.class);
+        auditLog.meterRegistry = new SimpleMeterRegistry();
+        auditLog.enabled = true;
+        auditLog.directory = directory.toString();
+        auditLog.queueCapacity = 4;
+        auditLog.batchSize = 1;
+        auditLog.flushIntervalMillis = 10;
+        auditLog.maxFileBytes = 1;
+        auditLog.backpressurePolicy = backpressurePolicy;
+        auditLog.blockTimeoutMillis = 200;
+        auditLog.maxSegments = maxSegments;
+        auditLog.postConstruct();
+
+        return auditLog;
+    }
+
+    private static void deleteDirectory(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList())
+                Files.delete(file);
+        }
+
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,96 @@
+package com.hotjoe.cli;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.hotjoe.jwt.JWTTokenUtil;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@QuarkusTest
+public class BulkMintCommandTest {
+    private static final int SUBJECT_COUNT = 2000;
+
+    @Inject
+    BulkMintCommand bulkMintCommand;
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Test
+    public void testOrdered() throws Exception {
+        Path subjects = writeSubjects("ordered");
+        Path tokens = subjects.resolveSibling("ordered-tokens.txt");
+
+        assert( bulkMintCommand.run("--input", subjects.toString(), "--output", tokens.toString(),
+                "--threads", "4", "--batch-size", "64") == 0 );
+
+        List<String> lines = Files.readAllLines(tokens, StandardCharsets.US_ASCII);
+        assert( lines.size() == SUBJECT_COUNT );
+
+        for (int i = 0; i < SUBJECT_COUNT; i++)
+            assert( jwtTokenUtil.validateToken(lines.get(i)).getSubject().equals("subject-" + i) );
+    }
+
+    @Test
+    public void testUnorderedTenant() throws Exception {
+        Path subjects = writeSubjects("unordered");
+        Path tokens = subjects.resolveSibling("unordered-tokens.txt");
+
+        assert( bulkMintCommand.run("-i", subjects.toString(), "-o", tokens.toString(),
+                "--tenant", "acme", "--unordered", "-t", "3", "--batch-size", "50") == 0 );
+
+        List<String> lines = Files.readAllLines(tokens, StandardCharsets.US_ASCII);
+        assert( lines.size() == SUBJECT_COUNT );
+
+        Set<String> minted = new HashSet<>();
+        for (String line : lines) {
+            DecodedJWT decodedJWT = jwtTokenUtil.validateToken(line);
+            assert( "acme".equals(decodedJWT.getKeyId()) );
+            minted.add(decodedJWT.getSubject());
+        }
+
+        assert( minted.size() == SUBJECT_COUNT );
+        for (int i = 0; i < SUBJECT_COUNT; i++)
+            assert( minted.contains("subject-" + i) );
+    }
+
+    @Test
+    public void testBadArguments() {
+        assert( bulkMintCommand.run("--threads", "0") == 2 );
+        assert( bulkMintCommand.run("--batch-size") == 2 );
+        assert( bulkMintCommand.run("--bogus") == 2 );
+        assert( bulkMintCommand.run("--tenant", "no-such-tenant") == 2 );
+        assert( bulkMintCommand.run("--tenant", "acme", "--profile", "test-app") == 2 );
+        assert( bulkMintCommand.run("--input", "target/mint/does-not-exist.txt", "--output", "target/mint/unused.txt") == 1 );
+    }
+
+    private static Path writeSubjects(String name) throws Exception {
+        Path directory = Paths.get("target", "mint");
+        Files.createDirectories(directory);
+
+        Path subjects = directory.resolve(name + "-subjects.txt");
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(subjects, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < SUBJECT_COUNT; i++) {
+                bufferedWriter.write("subject-" + i);
+                bufferedWriter.newLine();
+
+                //
+                // blank lines are skipped
+                //
+                if( (i % 500) == 0 )
+                    bufferedWriter.newLine();
+            }
+        }
+
+        return subjects;
+    }
+}
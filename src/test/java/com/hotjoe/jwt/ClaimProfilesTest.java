@@ -0,0 +1,118 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@QuarkusTest
+public class ClaimProfilesTest {
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    ClaimProfiles claimProfiles;
+
+    @Test
+    public void testProfileJWT() {
+        ClaimProfile claimProfile = claimProfiles.getProfile("mobile-app");
+        assert( claimProfile != null );
+
+        String subject = UUID.randomUUID().toString();
+        String jwt = jwtTokenUtil.generateJWTToken(claimProfile, subject, Map.of("department", "sales \"east\"", "level", 3));
+
+        DecodedJWT decodedJWT = jwtTokenUtil.validateToken(jwt);
+        assert( subject.equals(decodedJWT.getSubject()) );
+        assert( List.of("mobile").equals(decodedJWT.getAudience()) );
+        assert( "profile tokens:read".equals(decodedJWT.getClaim("scope").asString()) );
+        assert( "sales \"east\"".equals(decodedJWT.getClaim("department").asString()) );
+        assert( decodedJWT.getClaim("level").asInt() == 3 );
+        assert( decodedJWT.getExpiresAt().getTime() - decodedJWT.getIssuedAt().getTime() == 900_000L );
+    }
+
+    @Test
+    public void testProfileFixedClaims() {
+        String jwt = jwtTokenUtil.generateJWTToken(claimProfiles.getProfile("test-app"), "the subject", null);
+
+        DecodedJWT decodedJWT = jwtTokenUtil.validateToken(jwt);
+        assert( List.of("api-one", "api-two").equals(decodedJWT.getAudience()) );
+        assert( List.of("admin", "user").equals(decodedJWT.getClaim("roles").asList(String.class)) );
+        assert( "acme".equals(decodedJWT.getClaim("tenant").asString()) );
+    }
+
+    @Test
+    public void testProfileIssuer() {
+        ClaimProfile claimProfile = claimProfiles.getProfile("partner-app");
+        assert( "https://partner.example.com/".equals(claimProfile.getIssuer()) );
+
+        //
+        // issuing from one must not stop tokens from the other validating
+        //
+        for (int i = 0; i < 2; i++) {
+            String defaultJWT = jwtTokenUtil.generateJWTToken("the subject");
+            String profileJWT = jwtTokenUtil.generateJWTToken(claimProfile, "the subject", null);
+
+            assert( jwtTokenUtil.isTokenValid(defaultJWT) );
+            assert( "https://partner.example.com/".equals(jwtTokenUtil.validateToken(profileJWT).getIssuer()) );
+
+            defaultJWT = jwtTokenUtil.generateJWTToken("the subject");
+
+            assert( jwtTokenUtil.isTokenValid(profileJWT) );
+            assert( jwtTokenUtil.isTokenValid(defaultJWT) );
+        }
+
+        // an issuer that is neither the default nor a profile's is not accepted
+        assert( !jwtTokenUtil.isTokenValid(jwtTokenUtil.generateJWTToken("the subject", "https://elsewhere.example.com/", 60, null, null, null)) );
+    }
+
+    @Test
+    public void testReservedClaims() {
+        ClaimProfile claimProfile = claimProfiles.getProfile("test-app");
+
+        for (String claim : List.of("sub", "exp", "roles", "tenant")) {
+            try {
+                jwtTokenUtil.generateJWTToken(claimProfile, "the subject", Map.of(claim, "x"));
+                assert( false );
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testAuthorizationClaimsReserved() {
+        //
+        // mobile-app has no roles of its own but a request still can't grant any
+        //
+        ClaimProfile claimProfile = claimProfiles.getProfile("mobile-app");
+
+        for (String claim : List.of("roles", "scope")) {
+            try {
+                jwtTokenUtil.generateJWTToken(claimProfile, "the subject", Map.of(claim, List.of("admin")));
+                assert( false );
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testClaimsTooLarge() {
+        try {
+            jwtTokenUtil.generateJWTToken(claimProfiles.getProfile("mobile-app"), "the subject", Map.of("blob", "x".repeat(2000)));
+            assert( false );
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownProfile() {
+        assert( claimProfiles.getProfile("no-such-profile") == null );
+    }
+}
@@ -1,10 +1,26 @@
 package com.hotjoe.jwt;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusMock;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @QuarkusTest
 public class JWTTest {
@@ -12,6 +28,15 @@ public class JWTTest {
     @Inject
     JWTTokenUtil jwtTokenUtil;
 
+    @Inject
+    TenantKeyRegistry tenantKeyRegistry;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "security.jwt.default.issuer")
+    String defaultIssuer;
+
     @Test
     public void testJWT() {
 
@@ -22,7 +47,7 @@ public class JWTTest {
 
     @Test
     public void testExpiredJWT() {
-       String jwt = jwtTokenUtil.generateJWTToken(UUID.randomUUID().toString(), "https://www.blah.com/", 1, "user@example.com", "User", "Name" );
+       String jwt = jwtTokenUtil.generateJWTToken(UUID.randomUUID().toString(), defaultIssuer, 1, "user@example.com", "User", "Name" );
 
         System.out.println("sleeping 2 seconds to expire token...");
         try {
@@ -31,7 +56,15 @@ public class JWTTest {
             throw new RuntimeException(e);
         }
 
-        assert( !jwtTokenUtil.isTokenValid(jwt) );
+        //
+        // the issuer is trusted so expiry has to be the reason it is rejected
+        //
+        try {
+            jwtTokenUtil.validateToken(jwt);
+            assert( false );
+        } catch (TokenExpiredException expected) {
+            // expected
+        }
     }
 
     @Test
@@ -44,4 +77,203 @@ public class JWTTest {
 
         assert( !jwtTokenUtil.isTokenValid(newJWT) );
     }
+
+    @Test
+    public void testConcurrentValidation() throws Exception {
+        String jwt = jwtTokenUtil.generateJWTToken("the subject");
+        String[] jwtParts = jwt.split("\\.");
+        String badJWT = jwtParts[0] + "." + jwtParts[1] + "." + UUID.randomUUID();
+
+        int threads = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+
+        try {
+            List<Future<Boolean>> goodResults = new ArrayList<>();
+            List<Future<Boolean>> badResults = new ArrayList<>();
+
+            for (int i = 0; i < threads; i++) {
+                goodResults.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return jwtTokenUtil.isTokenValid(jwt);
+                }));
+                badResults.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return jwtTokenUtil.isTokenValid(badJWT);
+                }));
+            }
+
+            startLatch.countDown();
+
+            for (Future<Boolean> result : goodResults)
+                assert( result.get() );
+            for (Future<Boolean> result : badResults)
+                assert( !result.get() );
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testValidationsCoalesced() throws Exception {
+        Tenant tenant = tenantKeyRegistry.getTenant("acme");
+        String jwt = jwtTokenUtil.generateJWTToken(tenant, UUID.randomUUID().toString(), null, null, null);
+
+        CountDownLatch leaderLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        QuarkusMock.installMockForType(new BlockingTenantKeyRegistry(tenant, leaderLatch, releaseLatch, null),
+                TenantKeyRegistry.class);
+
+        double coalesced = meterRegistry.counter("jwt.validations.coalesced").count();
+        int waiters = 4;
+        ExecutorService executorService = Executors.newFixedThreadPool(waiters + 1);
+
+        try {
+            //
+            // hold the first validation inside the key lookup so the rest have to join it
+            //
+            List<Future<Boolean>> results = new ArrayList<>();
+            results.add(executorService.submit(() -> jwtTokenUtil.isTokenValid(jwt)));
+            assert( leaderLatch.await(5, TimeUnit.SECONDS) );
+
+            for (int i = 0; i < waiters; i++)
+                results.add(executorService.submit(() -> jwtTokenUtil.isTokenValid(jwt)));
+
+            waitForCount("jwt.validations.coalesced", coalesced + waiters);
+            releaseLatch.countDown();
+
+            for (Future<Boolean> result : results)
+                assert( result.get(5, TimeUnit.SECONDS) );
+        } finally {
+            releaseLatch.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCoalescedValidationError() throws Exception {
+        Tenant tenant = tenantKeyRegistry.getTenant("acme");
+        String jwt = jwtTokenUtil.generateJWTToken(tenant, UUID.randomUUID().toString(), null, null, null);
+
+        CountDownLatch leaderLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        QuarkusMock.installMockForType(new BlockingTenantKeyRegistry(tenant, leaderLatch, releaseLatch,
+                        new LinkageError("test error")), TenantKeyRegistry.class);
+
+        double coalesced = meterRegistry.counter("jwt.validations.coalesced").count();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Boolean> leader = executorService.submit(() -> jwtTokenUtil.isTokenValid(jwt));
+            assert( leaderLatch.await(5, TimeUnit.SECONDS) );
+
+            Future<Boolean> waiter = executorService.submit(() -> jwtTokenUtil.isTokenValid(jwt));
+            waitForCount("jwt.validations.coalesced", coalesced + 1);
+            releaseLatch.countDown();
+
+            //
+            // the Error must reach the waiter too rather than leaving it blocked
+            //
+            for (Future<Boolean> result : List.of(leader, waiter)) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    assert( false );
+                } catch (ExecutionException executionException) {
+                    assert( executionException.getCause() instanceof LinkageError );
+                }
+            }
+        } finally {
+            releaseLatch.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInternalJWT() {
+        String jwt = jwtTokenUtil.generateInternalJWTToken("the service");
+
+        assert( "the service".equals(jwtTokenUtil.validateInternalToken(jwt).getSubject()) );
+
+        // internal and external tokens are not interchangeable
+        assert( !jwtTokenUtil.isTokenValid(jwt) );
+        try {
+            jwtTokenUtil.validateInternalToken(jwtTokenUtil.generateJWTToken("the subject"));
+            assert( false );
+        } catch (JWTVerificationException expected) {
+            // expected
+        }
+
+        String[] jwtParts = jwt.split("\\.");
+        try {
+            jwtTokenUtil.validateInternalToken(jwtParts[0] + "." + jwtParts[1] + "." + jwtParts[2].substring(4) + "abcd");
+            assert( false );
+        } catch (JWTVerificationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testThreadLocalHmacMatchesStock() {
+        byte[] secret = "test-only-internal-secret-that-is-at-least-64-bytes-long-for-hs512".getBytes(StandardCharsets.UTF_8);
+
+        for (String name : new String[] { "HS256", "HS384", "HS512" }) {
+            Algorithm threadLocalAlgorithm = ThreadLocalHmacAlgorithm.forName(name, secret);
+            Algorithm stockAlgorithm = switch (name) {
+                case "HS256" -> Algorithm.HMAC256(secret);
+                case "HS384" -> Algorithm.HMAC384(secret);
+                default -> Algorithm.HMAC512(secret);
+            };
+
+            String jwt = JWT.create().withSubject("the subject").sign(threadLocalAlgorithm);
+            JWT.require(stockAlgorithm).build().verify(jwt);
+
+            jwt = JWT.create().withSubject("the subject").sign(stockAlgorithm);
+            JWT.require(threadLocalAlgorithm).build().verify(jwt);
+        }
+    }
+
+    private void waitForCount(String counter, double expected) throws InterruptedException {
+        for (int i = 0; (i < 500) && (meterRegistry.counter(counter).count() < expected); i++)
+            Thread.sleep(10);
+
+        assert( meterRegistry.counter(counter).count() == expected ) : counter + " is " + meterRegistry.counter(counter).count();
+    }
+
+    /**
+     * Hands back a tenant only once released, so a validation can be held inside the key lookup.
+     */
+    private static class BlockingTenantKeyRegistry extends TenantKeyRegistry {
+        private final Tenant tenant;
+        private final CountDownLatch leaderLatch;
+        private final CountDownLatch releaseLatch;
+        private final Error error;
+
+        BlockingTenantKeyRegistry(Tenant tenant, CountDownLatch leaderLatch, CountDownLatch releaseLatch, Error error) {
+            this.tenant = tenant;
+            this.leaderLatch = leaderLatch;
+            this.releaseLatch = releaseLatch;
+            this.error = error;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public Tenant getTenant(String tenantId) {
+            leaderLatch.countDown();
+
+            try {
+                releaseLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if( error != null )
+                throw error;
+
+            return tenant;
+        }
+    }
 }
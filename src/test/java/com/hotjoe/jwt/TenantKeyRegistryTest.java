@@ -0,0 +1,134 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+@QuarkusTest
+public class TenantKeyRegistryTest {
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    TenantKeyRegistry tenantKeyRegistry;
+
+    @Test
+    public void testTenantJWT() {
+        Tenant tenant = tenantKeyRegistry.getTenant("acme");
+
+        assert( tenant != null );
+        assert( tenant.canSign() );
+
+        String jwt = jwtTokenUtil.generateJWTToken(tenant, UUID.randomUUID().toString(), "user@example.com", null, null);
+
+        DecodedJWT decodedJWT = jwtTokenUtil.validateToken(jwt);
+        assert( "acme".equals(decodedJWT.getKeyId()) );
+        assert( "https://acme.example.com/".equals(decodedJWT.getIssuer()) );
+
+        // a cached tenant is handed back as-is
+        assert( tenantKeyRegistry.getTenant("acme") == tenant );
+    }
+
+    @Test
+    public void testUnknownTenant() {
+        assert( tenantKeyRegistry.getTenant("no-such-tenant") == null );
+        assert( tenantKeyRegistry.getTenant("../tenants/acme") == null );
+    }
+
+    @Test
+    public void testTenantKeyMismatch() {
+        String jwt = jwtTokenUtil.generateJWTToken(tenantKeyRegistry.getTenant("acme"), UUID.randomUUID().toString(), null, null, null);
+
+        //
+        // point the acme signed token at globex - the globex key must not accept it
+        //
+        String[] jwtParts = jwt.split("\\.");
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(jwtParts[0]), StandardCharsets.UTF_8)
+                        .replace("\"acme\"", "\"globex\"").getBytes(StandardCharsets.UTF_8));
+        String newJWT = header + "." + jwtParts[1] + "." + jwtParts[2];
+
+        assert( "globex".equals(JWT.decode(newJWT).getKeyId()) );
+        assert( !jwtTokenUtil.isTokenValid(newJWT) );
+    }
+
+    @Test
+    public void testUnknownTenantToken() {
+        String jwt = jwtTokenUtil.generateJWTToken(tenantKeyRegistry.getTenant("globex"), UUID.randomUUID().toString(), null, null, null);
+        String[] jwtParts = jwt.split("\\.");
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(jwtParts[0]), StandardCharsets.UTF_8)
+                        .replace("\"globex\"", "\"initech\"").getBytes(StandardCharsets.UTF_8));
+
+        try {
+            jwtTokenUtil.validateToken(header + "." + jwtParts[1] + "." + jwtParts[2]);
+            assert( false );
+        } catch (JWTVerificationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBrokenTenants() {
+        assert( tenantKeyRegistry.getTenant("corrupt") == null );
+
+        Tenant tenant = tenantKeyRegistry.getTenant("verifyonly");
+        assert( tenant != null );
+        assert( !tenant.canSign() );
+
+        //
+        // a token pointing at a tenant with a corrupt key is rejected, not an error
+        //
+        String jwt = jwtTokenUtil.generateJWTToken(tenantKeyRegistry.getTenant("acme"), UUID.randomUUID().toString(), null, null, null);
+        String[] jwtParts = jwt.split("\\.");
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(jwtParts[0]), StandardCharsets.UTF_8)
+                        .replace("\"acme\"", "\"corrupt\"").getBytes(StandardCharsets.UTF_8));
+
+        assert( !jwtTokenUtil.isTokenValid(header + "." + jwtParts[1] + "." + jwtParts[2]) );
+    }
+
+    @Test
+    public void testUnknownTenantRemembered() throws Exception {
+        Path tenantsDirectory = Files.createDirectories(Paths.get("target", "tenants-" + UUID.randomUUID()));
+
+        TenantKeyRegistry registry = new TenantKeyRegistry();
+        registry.logger = Logger.getLogger(TenantKeyRegistry.class);
+        registry.tenantsDirectory = Optional.of(tenantsDirectory.toString());
+        registry.cacheSize = 10;
+        registry.unknownCacheSize = 10;
+        registry.unknownSeconds = 1;
+        registry.defaultSecondsToExpiration = 60;
+        registry.postConstruct();
+
+        assert( registry.getTenant("late") == null );
+
+        //
+        // the tenant shows up on disk but the miss is remembered until it expires
+        //
+        Path lateDirectory = Files.createDirectories(tenantsDirectory.resolve("late"));
+        Path acmeDirectory = Paths.get("src", "test", "resources", "tenants", "acme");
+        for (String file : new String[] { "tenant.properties", "public.pem", "private.pkcs8" })
+            Files.copy(acmeDirectory.resolve(file), lateDirectory.resolve(file));
+
+        assert( registry.getTenant("late") == null );
+
+        Thread.sleep(1100);
+
+        assert( registry.getTenant("late") != null );
+        assert( registry.getCachedTenantCount() == 1 );
+    }
+}
@@ -0,0 +1,72 @@
+package com.hotjoe.jwt;
+
+import com.auth0.jwt.JWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+@QuarkusTest
+public class TokenIntrospectorTest {
+
+    @Inject
+    JWTTokenUtil jwtTokenUtil;
+
+    @Inject
+    TokenIntrospector tokenIntrospector;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "security.jwt.default.issuer")
+    String defaultIssuer;
+
+    @Test
+    public void testCachedUntilExpiry() throws Exception {
+        String subject = UUID.randomUUID().toString();
+        String jwt = jwtTokenUtil.generateJWTToken(subject, defaultIssuer, 2, "user@example.com", "Tommy", null);
+
+        double hits = meterRegistry.counter("jwt.introspection.cache.hits").count();
+        double misses = meterRegistry.counter("jwt.introspection.cache.misses").count();
+        double validations = meterRegistry.counter("jwt.validations").count();
+
+        String introspection = tokenIntrospector.introspect(jwt);
+        assert( introspection.startsWith("{\"active\":true,") );
+        assert( introspection.contains("\"sub\":\"" + subject + "\"") );
+        assert( introspection.contains("\"email\":\"user@example.com\"") );
+        assert( introspection.contains("\"given_name\":\"Tommy\"") );
+        assert( !introspection.contains("family_name") );
+
+        //
+        // the second call comes straight from the cache without validating again
+        //
+        assert( tokenIntrospector.introspect(jwt) == introspection );
+        assert( meterRegistry.counter("jwt.introspection.cache.hits").count() == hits + 1 );
+        assert( meterRegistry.counter("jwt.introspection.cache.misses").count() == misses + 1 );
+        assert( meterRegistry.counter("jwt.validations").count() == validations + 1 );
+
+        //
+        // once the token has expired the cached answer must not be served
+        //
+        long expiresAt = JWT.decode(jwt).getExpiresAt().getTime();
+        Thread.sleep(Math.max(0, expiresAt - System.currentTimeMillis()) + 1100);
+
+        assert( TokenIntrospector.INACTIVE.equals(tokenIntrospector.introspect(jwt)) );
+    }
+
+    @Test
+    public void testInvalidTokenNotCached() {
+        String jwt = jwtTokenUtil.generateJWTToken(UUID.randomUUID().toString());
+        String[] jwtParts = jwt.split("\\.");
+        String newJWT = jwtParts[0] + "." + jwtParts[1] + "." + UUID.randomUUID();
+
+        int cached = tokenIntrospector.getCachedIntrospectionCount();
+
+        assert( TokenIntrospector.INACTIVE.equals(tokenIntrospector.introspect(newJWT)) );
+        assert( TokenIntrospector.INACTIVE.equals(tokenIntrospector.introspect(null)) );
+        assert( tokenIntrospector.getCachedIntrospectionCount() == cached );
+    }
+}
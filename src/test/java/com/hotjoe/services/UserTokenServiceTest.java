@@ -9,6 +9,8 @@ import io.restassured.RestAssured;
 import io.restassured.specification.RequestSpecification;
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -160,4 +162,264 @@ public class UserTokenServiceTest {
                 .then()
                 .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
     }
+
+    @Test
+    public void testTenantAuthWithValidate() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setTenantId("acme");
+
+        String token = given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().path("token");
+
+        ValidateTokenRequest validateTokenRequest = new ValidateTokenRequest();
+        validateTokenRequest.setToken(token);
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+    }
+
+    @Test
+    public void testUnknownTenantAuth() {
+        //
+        // verifyonly has no private key and corrupt has a public key that isn't Base64
+        //
+        for (String tenantId : new String[] { "no-such-tenant", "verifyonly", "corrupt" }) {
+            CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+            createTokenRequest.setUserName("tommy");
+            createTokenRequest.setPassword("tutone");
+            createTokenRequest.setTenantId(tenantId);
+
+            given()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(createTokenRequest)
+                .when()
+                    .post("/user/getToken")
+                .then()
+                    .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                    .body(
+                            "message", is(Response.Status.BAD_REQUEST.getReasonPhrase()),
+                            "$", not(hasKey("token"))
+                    );
+        }
+    }
+
+    @Test
+    public void testInternalAuthWithValidate() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+
+        String token = given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getInternalToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().path("token");
+
+        ValidateTokenRequest validateTokenRequest = new ValidateTokenRequest();
+        validateTokenRequest.setToken(token);
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateInternalToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        // an internal token is not accepted by the external validator
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateToken")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testUnsuccessfulInternalAuth() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("blah");
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getInternalToken")
+            .then()
+                .statusCode(Response.Status.UNAUTHORIZED.getStatusCode())
+                .body(
+                        "message", is(Response.Status.UNAUTHORIZED.getReasonPhrase()),
+                        "$", not(hasKey("token"))
+                );
+    }
+
+    @Test
+    public void testProfileAuthWithValidate() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setProfile("mobile-app");
+        createTokenRequest.setClaims(Map.of("device", "abc-123"));
+
+        String token = given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().path("token");
+
+        ValidateTokenRequest validateTokenRequest = new ValidateTokenRequest();
+        validateTokenRequest.setToken(token);
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+    }
+
+    @Test
+    public void testProfileWithReservedClaim() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setProfile("mobile-app");
+        createTokenRequest.setClaims(Map.of("sub", "someone else"));
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .body("$", not(hasKey("token")));
+    }
+
+    @Test
+    public void testClaimsWithoutProfile() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setClaims(Map.of("device", "abc-123"));
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .body("$", not(hasKey("token")));
+    }
+
+    @Test
+    public void testUnknownProfileAuth() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setProfile("no-such-profile");
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .body(
+                        "message", is(Response.Status.BAD_REQUEST.getReasonPhrase()),
+                        "$", not(hasKey("token"))
+                );
+    }
+
+    @Test
+    public void testProfileAuthWithIntrospect() {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+        createTokenRequest.setProfile("mobile-app");
+        createTokenRequest.setClaims(Map.of("device", "abc-123"));
+
+        String token = given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .extract().body().path("token");
+
+        // the second call is answered from the cache and must be identical
+        for (int i = 0; i < 2; i++) {
+            given()
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .formParam("token", token)
+                    .formParam("token_type_hint", "access_token")
+                .when()
+                    .post("/user/introspect")
+                .then()
+                    .statusCode(Response.Status.OK.getStatusCode())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(
+                            "active", is(true),
+                            "sub", is("tommy"),
+                            "aud", is("mobile"),
+                            "scope", is("profile tokens:read"),
+                            "exp", notNullValue(),
+                            "jti", notNullValue(),
+                            "$", not(hasKey("device")),
+                            "$", not(hasKey("email"))
+                    );
+        }
+    }
+
+    @Test
+    public void testMungedTokenIntrospect() {
+        given()
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .formParam("token", "not a jwt")
+            .when()
+                .post("/user/introspect")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode())
+                .body(
+                        "active", is(false),
+                        "$", not(hasKey("sub"))
+                );
+    }
+
+    @Test
+    public void testMissingTokenIntrospect() {
+        given()
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .formParam("token_type_hint", "access_token")
+            .when()
+                .post("/user/introspect")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode())
+                .body("error", is("invalid_request"));
+    }
 }
@@ -0,0 +1,19 @@
+package com.hotjoe.tracing;
+
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+/**
+ * Sends the spans to memory during tests so they can be checked without a collector.
+ */
+@ApplicationScoped
+public class InMemorySpanExporterProducer {
+    @Produces
+    @Singleton
+    InMemorySpanExporter inMemorySpanExporter() {
+        return InMemorySpanExporter.create();
+    }
+}
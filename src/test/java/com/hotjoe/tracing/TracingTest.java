@@ -0,0 +1,104 @@
+package com.hotjoe.tracing;
+
+import com.hotjoe.services.user.model.CreateTokenRequest;
+import com.hotjoe.services.user.model.ValidateTokenRequest;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static io.restassured.RestAssured.given;
+
+@QuarkusTest
+@TestProfile(TracingTest.AlwaysSampleProfile.class)
+public class TracingTest {
+
+    /**
+     * Samples every trace so the phases of a single request can be checked.
+     */
+    public static class AlwaysSampleProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("quarkus.otel.traces.sampler.arg", "1.0");
+        }
+    }
+
+    @Inject
+    InMemorySpanExporter inMemorySpanExporter;
+
+    @BeforeEach
+    public void setUp() {
+        inMemorySpanExporter.reset();
+    }
+
+    @Test
+    public void testGenerateTokenPhases() throws InterruptedException {
+        CreateTokenRequest createTokenRequest = new CreateTokenRequest();
+        createTokenRequest.setUserName("tommy");
+        createTokenRequest.setPassword("tutone");
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(createTokenRequest)
+            .when()
+                .post("/user/getToken")
+            .then()
+                .statusCode(Response.Status.OK.getStatusCode());
+
+        SpanData generateSpan = waitForSpan("jwt.generate");
+        assert( "RS256".equals(generateSpan.getAttributes().get(Spans.ALGORITHM)) );
+        assert( generateSpan.getAttributes().get(Spans.ISSUER) != null );
+
+        for (String phase : List.of("http.readEntity", "user.checkCredentials", "jwt.key", "jwt.sign", "http.writeEntity"))
+            assert( waitForSpan(phase).getTraceId().equals(generateSpan.getTraceId()) ) : phase;
+
+        assert( waitForSpan("jwt.sign").getParentSpanId().equals(generateSpan.getSpanId()) );
+    }
+
+    @Test
+    public void testRejectedTokenReason() throws InterruptedException {
+        ValidateTokenRequest validateTokenRequest = new ValidateTokenRequest();
+        validateTokenRequest.setToken("not a jwt");
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(validateTokenRequest)
+            .when()
+                .post("/user/validateToken")
+            .then()
+                .statusCode(Response.Status.BAD_REQUEST.getStatusCode());
+
+        SpanData validateSpan = waitForSpan("jwt.validate");
+        assert( validateSpan.getStatus().getStatusCode() == StatusCode.ERROR );
+        assert( "JWTDecodeException".equals(validateSpan.getAttributes().get(Spans.FAILURE_REASON)) );
+    }
+
+    private SpanData waitForSpan(String name) throws InterruptedException {
+        //
+        // spans go through the batch processor so give it time to export
+        //
+        for (int i = 0; i < 1500; i++) {
+            Optional<SpanData> spanData = inMemorySpanExporter.getFinishedSpanItems().stream()
+                    .filter(span -> name.equals(span.getName()))
+                    .findFirst();
+
+            if( spanData.isPresent() )
+                return spanData.get();
+
+            Thread.sleep(10);
+        }
+
+        throw new AssertionError("no span named " + name + " in " + inMemorySpanExporter.getFinishedSpanItems());
+    }
+}